@@ -1,9 +1,11 @@
 package com.helpme.backend.config;
 
 import com.helpme.backend.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -27,12 +29,18 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .cors(cors -> cors.disable())
                 .authorizeHttpRequests(auth -> auth
+                        // ✅ Async dispatch của SSE/streaming đã được authorize ở request gốc
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // Public endpoints
                         .requestMatchers("/v1/auth/send-otp").permitAll()
                         .requestMatchers("/v1/auth/verify-otp").permitAll()
                         .requestMatchers("/v1/auth/resend-otp").permitAll()
                         .requestMatchers("/v1/auth/check-phone").permitAll()
-                        .requestMatchers("/v1/files/**").permitAll()
+                        .requestMatchers("/v1/auth/refresh").permitAll()
+                        // ✅ Chỉ đọc ảnh là public, /presign và các endpoint upload cần đăng nhập
+                        .requestMatchers(HttpMethod.GET, "/v1/files/**").permitAll()
+                        .requestMatchers(HttpMethod.HEAD, "/v1/files/**").permitAll()
                         .requestMatchers("/actuator/**").permitAll()
                         .requestMatchers("/v1/health").permitAll()
                         .requestMatchers("/error").permitAll()
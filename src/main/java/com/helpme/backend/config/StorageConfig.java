@@ -33,6 +33,7 @@ public class StorageConfig {
             createSubFolder("addons");
             createSubFolder("avatars");
             createSubFolder("providers");
+            createSubFolder("blobs");
 
         } catch (IOException e) {
             log.error("❌ Could not create upload directory!", e);
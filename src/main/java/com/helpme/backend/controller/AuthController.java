@@ -5,6 +5,7 @@ import com.helpme.backend.entity.User;
 import com.helpme.backend.service.AuthService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -60,6 +61,45 @@ public class AuthController {
         return ResponseEntity.ok(new MessageResponse("OTP resent successfully"));
     }
 
+    /**
+     * POST /v1/auth/refresh
+     * Đổi refresh token lấy access token mới
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(
+            @RequestBody @Valid RefreshTokenRequest request) {
+        AuthResponse response = authService.refresh(request.getRefreshToken());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * POST /v1/auth/logout
+     * Đăng xuất thiết bị hiện tại
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<MessageResponse> logout(
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+            @RequestBody(required = false) RefreshTokenRequest request,
+            @AuthenticationPrincipal User currentUser) {
+        authService.logout(
+                authorization.substring(7),
+                request != null ? request.getRefreshToken() : null,
+                currentUser);
+        return ResponseEntity.ok(new MessageResponse("Logged out successfully"));
+    }
+
+    /**
+     * POST /v1/auth/logout-all
+     * Đăng xuất khỏi tất cả thiết bị
+     */
+    @PostMapping("/logout-all")
+    public ResponseEntity<MessageResponse> logoutAll(
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+            @AuthenticationPrincipal User currentUser) {
+        authService.logoutAll(authorization.substring(7), currentUser);
+        return ResponseEntity.ok(new MessageResponse("Logged out from all devices"));
+    }
+
     /**
      * GET /v1/auth/me
      * Lấy thông tin user hiện tại (cần authentication)
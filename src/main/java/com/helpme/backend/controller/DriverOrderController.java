@@ -3,12 +3,21 @@ package com.helpme.backend.controller;
 import com.helpme.backend.dto.*;
 import com.helpme.backend.entity.User;
 import com.helpme.backend.service.AddOnService;
+import com.helpme.backend.service.HttpCacheService;
+import com.helpme.backend.service.IdempotencyService;
 import com.helpme.backend.service.OrderService;
+import com.helpme.backend.service.QuoteStreamService;
+import com.helpme.backend.service.ResourceVersions;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
@@ -20,16 +29,23 @@ public class DriverOrderController {
 
     private final OrderService orderService;
     private final AddOnService addOnService;
+    private final IdempotencyService idempotencyService;
+    private final HttpCacheService httpCacheService;
+    private final QuoteStreamService quoteStreamService;
+    private final ResourceVersions resourceVersions;
 
     /**
      * POST /v1/driver/orders
-     * Tạo order mới
+     * Tạo order mới (hỗ trợ header Idempotency-Key cho retry)
      */
     @PostMapping
     public ResponseEntity<OrderDTO> createOrder(
             @RequestBody @Valid CreateOrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal User currentUser) {
-        OrderDTO order = orderService.createOrder(request, currentUser);
+        OrderDTO order = idempotencyService.execute(
+                "order.create", currentUser.getId(), idempotencyKey, OrderDTO.class,
+                () -> orderService.createOrder(request, currentUser));
         return ResponseEntity.ok(order);
     }
 
@@ -40,9 +56,12 @@ public class DriverOrderController {
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderDTO> getOrderDetails(
             @PathVariable UUID orderId,
+            WebRequest webRequest,
             @AuthenticationPrincipal User currentUser) {
-        OrderDTO order = orderService.getOrderDetails(orderId, currentUser);
-        return ResponseEntity.ok(order);
+        return httpCacheService.conditional(
+                webRequest, ResourceVersions.order(orderId), currentUser.getId(), CacheControl.noCache().cachePrivate(),
+                () -> resourceVersions.orderVersion(orderId),
+                () -> orderService.getOrderDetails(orderId, currentUser), OrderDTO::getUpdatedAt);
     }
 
     /**
@@ -52,9 +71,12 @@ public class DriverOrderController {
     @GetMapping("/{orderId}/quotes")
     public ResponseEntity<List<QuoteDTO>> getQuotes(
             @PathVariable UUID orderId,
+            WebRequest webRequest,
             @AuthenticationPrincipal User currentUser) {
-        List<QuoteDTO> quotes = orderService.getQuotes(orderId, currentUser);
-        return ResponseEntity.ok(quotes);
+        return httpCacheService.conditional(
+                webRequest, ResourceVersions.orderQuotes(orderId), currentUser.getId(), CacheControl.noCache().cachePrivate(),
+                () -> resourceVersions.orderQuotesVersion(orderId),
+                () -> orderService.getQuotes(orderId, currentUser));
     }
 
     /**
@@ -70,16 +92,43 @@ public class DriverOrderController {
     }
 
     /**
-     * GET /v1/driver/orders/history
-     * Lấy lịch sử orders
+     * GET /v1/driver/orders/{orderId}/quotes/stream
+     * Stream quotes của order (Server-Sent Events): "quotes" (danh sách hiện có),
+     * "new_quote_received" (mỗi quote mới), "order_status_changed" (rồi đóng stream)
+     */
+    @GetMapping(value = "/{orderId}/quotes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamQuotes(
+            @PathVariable UUID orderId,
+            @AuthenticationPrincipal User currentUser) {
+        return quoteStreamService.subscribe(orderId, currentUser);
+    }
+
+    /**
+     * GET /v1/driver/orders/history?cursor=&limit=
+     * Lấy lịch sử orders (cursor pagination)
      */
     @GetMapping("/history")
-    public ResponseEntity<List<OrderDTO>> getOrderHistory(
+    public ResponseEntity<CursorPageDTO<OrderDTO>> getOrderHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
             @AuthenticationPrincipal User currentUser) {
-        List<OrderDTO> orders = orderService.getOrderHistory(currentUser);
+        CursorPageDTO<OrderDTO> orders = orderService.getOrderHistory(currentUser, cursor, limit);
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * GET /v1/driver/orders/history/export
+     * Export toàn bộ lịch sử orders (streamed JSON array)
+     */
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportOrderHistory(
+            @AuthenticationPrincipal User currentUser) {
+        StreamingResponseBody body = out -> orderService.exportOrderHistory(currentUser, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
     /**
      * GET /v1/driver/orders/{orderId}/addons
      * Lấy danh sách add-ons
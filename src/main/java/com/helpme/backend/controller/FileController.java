@@ -1,52 +1,60 @@
 package com.helpme.backend.controller;
 
+import com.helpme.backend.dto.PresignedUploadResponse;
 import com.helpme.backend.dto.UploadResponse;
-import com.helpme.backend.service.LocalStorageService;
+import com.helpme.backend.exception.BadRequestException;
+import com.helpme.backend.service.ImageVariantService.Variant;
+import com.helpme.backend.service.StorageService;
+import com.helpme.backend.service.StorageService.StoredImage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @RestController
 @RequestMapping("/v1/files")
 @RequiredArgsConstructor
 public class FileController {
 
-    private final LocalStorageService storageService;
+    private final StorageService storageService;
 
     /**
-     * GET /v1/files/{folder}/{filename}
-     * Serve static image
+     * GET /v1/files/{path}?size=thumb|small|medium
+     * Serve static image (vd: /v1/files/blobs/ab/cd/abcd....jpg)
+     * size: bản resize, fallback bản gốc nếu chưa sinh xong
+     * Local: hỗ trợ ETag/If-None-Match, Range, cache 1 năm cho tên file bất biến
+     * S3: redirect 302 tới presigned URL
      */
-    @GetMapping("/{folder}/{filename:.+}")
-    public ResponseEntity<Resource> getImage(
-            @PathVariable String folder,
-            @PathVariable String filename) {
-        Resource resource = storageService.loadImage(folder + "/" + filename);
-
-        String contentType = "application/octet-stream";
-        try {
-            contentType = Files.probeContentType(Paths.get(resource.getURI()));
-            if (contentType == null) {
-                contentType = "image/jpeg";
-            }
-        } catch (IOException e) {
-            // Use default
-        }
+    @GetMapping("/{*path}")
+    public void getImage(
+            @PathVariable("path") String pathVariable,
+            @RequestParam(value = "size", required = false) String size,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        String path = pathVariable.startsWith("/") ? pathVariable.substring(1) : pathVariable;
+
+        Variant variant = size != null ? Variant.fromKey(size) : null;
+        storageService.serveImage(path, variant, request, response);
+    }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                .body(resource);
+    /**
+     * POST /v1/files/presign?folder=orders&contentType=image/jpeg&size=123456
+     * Cấp presigned URL để client PUT ảnh thẳng lên object storage (chỉ S3),
+     * sau đó dùng path/url trả về như kết quả của /upload
+     */
+    @PostMapping("/presign")
+    public ResponseEntity<PresignedUploadResponse> presignUpload(
+            @RequestParam(value = "folder", defaultValue = "general") String folder,
+            @RequestParam("contentType") String contentType,
+            @RequestParam("size") long size) {
+        return ResponseEntity.ok(storageService.presignUpload(folder, contentType, size));
     }
 
     /**
@@ -57,36 +65,61 @@ public class FileController {
     public ResponseEntity<UploadResponse> uploadImage(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "folder", defaultValue = "general") String folder) {
-        String path = storageService.saveImage(file, folder);
-        String url = "/v1/files/" + path;
+        StoredImage stored = storageService.store(file, folder);
+        String url = "/v1/files/" + stored.path();
 
         UploadResponse response = new UploadResponse(
                 url,
-                path,
+                stored.path(),
                 file.getOriginalFilename(),
-                file.getSize());
+                file.getSize(),
+                stored.durationMs());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * POST /v1/files/upload-stream
+     * Upload single image dạng raw body (không qua multipart buffering),
+     * stream thẳng xuống file bằng NIO channel
+     */
+    @PostMapping("/upload-stream")
+    public ResponseEntity<UploadResponse> uploadImageStream(
+            HttpServletRequest request,
+            @RequestParam(value = "folder", defaultValue = "general") String folder) throws IOException {
+        if (request.getContentLengthLong() > StorageService.MAX_IMAGE_BYTES) {
+            throw new BadRequestException("File size must be less than 10MB");
+        }
+
+        StoredImage stored = storageService.saveImage(request.getInputStream(), folder);
+
+        UploadResponse response = new UploadResponse(
+                "/v1/files/" + stored.path(),
+                stored.path(),
+                stored.filename(),
+                stored.size(),
+                stored.durationMs());
 
         return ResponseEntity.ok(response);
     }
 
     /**
      * POST /v1/files/upload-multiple
-     * Upload multiple images
+     * Upload multiple images (xử lý song song, 1 file lỗi thì không lưu file nào)
      */
     @PostMapping("/upload-multiple")
     public ResponseEntity<List<UploadResponse>> uploadMultipleImages(
             @RequestParam("files") List<MultipartFile> files,
             @RequestParam(value = "folder", defaultValue = "general") String folder) {
-        List<UploadResponse> responses = files.stream()
-                .map(file -> {
-                    String path = storageService.saveImage(file, folder);
-                    String url = "/v1/files/" + path;
-                    return new UploadResponse(
-                            url,
-                            path,
-                            file.getOriginalFilename(),
-                            file.getSize());
-                })
+        List<StoredImage> stored = storageService.saveMultipleImages(files, folder);
+
+        List<UploadResponse> responses = IntStream.range(0, files.size())
+                .mapToObj(i -> new UploadResponse(
+                        "/v1/files/" + stored.get(i).path(),
+                        stored.get(i).path(),
+                        files.get(i).getOriginalFilename(),
+                        files.get(i).getSize(),
+                        stored.get(i).durationMs()))
                 .collect(Collectors.toList());
 
         return ResponseEntity.ok(responses);
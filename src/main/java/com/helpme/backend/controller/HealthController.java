@@ -1,6 +1,7 @@
 // controller/HealthController.java
 package com.helpme.backend.controller;
 
+import com.helpme.backend.service.HttpCacheService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -20,13 +21,16 @@ public class HealthController {
 
     private final RedisTemplate<String, Object> redisTemplate;
     private final boolean redisEnabled;
+    private final HttpCacheService httpCacheService;
 
     // ✅ Constructor with optional RedisTemplate
     public HealthController(
             @Autowired(required = false) RedisTemplate<String, Object> redisTemplate,
-            @Value("${spring.data.redis.enabled:false}") boolean redisEnabled) {
+            @Value("${spring.data.redis.enabled:false}") boolean redisEnabled,
+            HttpCacheService httpCacheService) {
         this.redisTemplate = redisTemplate;
         this.redisEnabled = redisEnabled;
+        this.httpCacheService = httpCacheService;
     }
 
     /**
@@ -112,6 +116,9 @@ public class HealthController {
         system.put("max_memory_mb", runtime.maxMemory() / 1024 / 1024);
         health.put("system", system);
 
+        // Conditional GET (ETag/304) stats
+        health.put("http_cache", httpCacheService.getStats());
+
         return ResponseEntity.ok(health);
     }
 }
\ No newline at end of file
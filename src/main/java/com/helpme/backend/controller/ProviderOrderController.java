@@ -8,17 +8,25 @@ import com.helpme.backend.exception.NotFoundException;
 import com.helpme.backend.repository.ProviderRepository;
 import com.helpme.backend.repository.UserRepository;
 import com.helpme.backend.service.AddOnService;
+import com.helpme.backend.service.HttpCacheService;
+import com.helpme.backend.service.IdempotencyService;
 import com.helpme.backend.service.LocationService; // ✅ Change to interface
+import com.helpme.backend.service.OrderService;
 import com.helpme.backend.service.ProviderService;
 import com.helpme.backend.service.QuoteService;
+import com.helpme.backend.service.ResourceVersions;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -29,8 +37,12 @@ import java.util.UUID;
 public class ProviderOrderController {
 
     private final ProviderService providerService;
+    private final OrderService orderService;
     private final QuoteService quoteService;
     private final AddOnService addOnService;
+    private final IdempotencyService idempotencyService;
+    private final HttpCacheService httpCacheService;
+    private final ResourceVersions resourceVersions;
     private final LocationService locationService; // ✅ Use interface, not RedisLocationService
     private final ProviderRepository providerRepository;
     private final UserRepository userRepository;
@@ -38,14 +50,20 @@ public class ProviderOrderController {
     // ✅ Constructor with optional LocationService
     public ProviderOrderController(
             ProviderService providerService,
+            OrderService orderService,
             QuoteService quoteService,
             AddOnService addOnService,
+            IdempotencyService idempotencyService,
+            HttpCacheService httpCacheService,
             @Autowired(required = false) LocationService locationService, // ✅ Optional
             ProviderRepository providerRepository,
             UserRepository userRepository) {
         this.providerService = providerService;
+        this.orderService = orderService;
         this.quoteService = quoteService;
         this.addOnService = addOnService;
+        this.idempotencyService = idempotencyService;
+        this.httpCacheService = httpCacheService;
         this.locationService = locationService;
         this.providerRepository = providerRepository;
         this.userRepository = userRepository;
@@ -65,28 +83,73 @@ public class ProviderOrderController {
     }
 
     /**
-     * GET /v1/provider/orders/nearby
-     * Tìm orders gần provider
+     * GET /v1/provider/orders/nearby?lat=&lng=&radius=&limit=
+     * Tìm orders gần provider (gần nhất trước)
      */
     @GetMapping("/orders/nearby")
     public ResponseEntity<List<OrderDTO>> getNearbyOrders(
             @RequestParam double lat,
             @RequestParam double lng,
             @RequestParam(defaultValue = "10000") int radius,
+            @RequestParam(defaultValue = "50") int limit,
             @AuthenticationPrincipal User currentUser) {
-        List<OrderDTO> orders = providerService.findNearbyOrders(lat, lng, radius, currentUser);
+        List<OrderDTO> orders = providerService.findNearbyOrders(lat, lng, radius, limit, currentUser);
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * GET /v1/provider/orders/nearby/changes?lat=&lng=&radius=&cursor=
+     * Delta feed: chỉ trả về orders thêm/bỏ trong khu vực kể từ cursor
+     */
+    @GetMapping("/orders/nearby/changes")
+    public ResponseEntity<NearbyOrderChangesDTO> getNearbyOrderChanges(
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(defaultValue = "10000") int radius,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal User currentUser) {
+        NearbyOrderChangesDTO changes = providerService.getNearbyOrderChanges(lat, lng, radius, cursor, currentUser);
+        return ResponseEntity.ok(changes);
+    }
+
+    /**
+     * GET /v1/provider/orders/history?cursor=&limit=
+     * Lấy lịch sử orders của provider (cursor pagination)
+     */
+    @GetMapping("/orders/history")
+    public ResponseEntity<CursorPageDTO<OrderDTO>> getOrderHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @AuthenticationPrincipal User currentUser) {
+        CursorPageDTO<OrderDTO> orders = orderService.getOrderHistory(currentUser, cursor, limit);
+        return ResponseEntity.ok(orders);
+    }
+
+    /**
+     * GET /v1/provider/orders/history/export
+     * Export toàn bộ lịch sử orders của provider (streamed JSON array)
+     */
+    @GetMapping("/orders/history/export")
+    public ResponseEntity<StreamingResponseBody> exportOrderHistory(
+            @AuthenticationPrincipal User currentUser) {
+        StreamingResponseBody body = out -> orderService.exportOrderHistory(currentUser, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
     /**
      * POST /v1/provider/quotes
-     * Gửi quote
+     * Gửi quote (hỗ trợ header Idempotency-Key cho retry)
      */
     @PostMapping("/quotes")
     public ResponseEntity<QuoteDTO> sendQuote(
             @RequestBody @Valid CreateQuoteRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal User currentUser) {
-        QuoteDTO quote = quoteService.createQuote(request, currentUser);
+        QuoteDTO quote = idempotencyService.execute(
+                "quote.create", currentUser.getId(), idempotencyKey, QuoteDTO.class,
+                () -> quoteService.createQuote(request, currentUser));
         return ResponseEntity.ok(quote);
     }
 
@@ -148,14 +211,20 @@ public class ProviderOrderController {
      */
     @GetMapping("/profile")
     public ResponseEntity<ProviderDTO> getProfile(
+            WebRequest webRequest,
             @AuthenticationPrincipal User currentUser) {
-        Provider provider = providerRepository.findById(currentUser.getId())
-                .orElseThrow(() -> new NotFoundException("Provider not found"));
-
-        ProviderDTO dto = ProviderDTO.from(provider);
-        dto.setPhone(currentUser.getPhone());
-        dto.setAvatarUrl(currentUser.getAvatarUrl());
-
-        return ResponseEntity.ok(dto);
+        return httpCacheService.conditional(
+                webRequest, ResourceVersions.provider(currentUser.getId()), currentUser.getId(),
+                CacheControl.noCache().cachePrivate(),
+                () -> resourceVersions.providerVersion(currentUser.getId()),
+                () -> {
+                    Provider provider = providerRepository.findById(currentUser.getId())
+                            .orElseThrow(() -> new NotFoundException("Provider not found"));
+
+                    ProviderDTO dto = ProviderDTO.from(provider);
+                    dto.setPhone(currentUser.getPhone());
+                    dto.setAvatarUrl(currentUser.getAvatarUrl());
+                    return dto;
+                });
     }
 }
\ No newline at end of file
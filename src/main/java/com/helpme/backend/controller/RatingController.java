@@ -1,17 +1,22 @@
 package com.helpme.backend.controller;
 
+import com.helpme.backend.dto.CursorPageDTO;
 import com.helpme.backend.dto.ProviderRatingStatsDTO;
 import com.helpme.backend.dto.RateProviderRequest;
 import com.helpme.backend.dto.RatingDTO;
 import com.helpme.backend.entity.User;
+import com.helpme.backend.service.HttpCacheService;
 import com.helpme.backend.service.RatingService;
+import com.helpme.backend.service.ResourceVersions;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
+import java.time.Duration;
 import java.util.UUID;
 
 @RestController
@@ -19,7 +24,11 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class RatingController {
 
+    private static final CacheControl PUBLIC_CACHE = CacheControl.maxAge(Duration.ofSeconds(30)).cachePublic();
+
     private final RatingService ratingService;
+    private final HttpCacheService httpCacheService;
+    private final ResourceVersions resourceVersions;
 
     /**
      * POST /v1/ratings/orders/{orderId}
@@ -35,14 +44,19 @@ public class RatingController {
     }
 
     /**
-     * GET /v1/ratings/providers/{providerId}
-     * Lấy danh sách ratings của provider
+     * GET /v1/ratings/providers/{providerId}?cursor=&limit=
+     * Lấy danh sách ratings của provider (cursor pagination)
      */
     @GetMapping("/providers/{providerId}")
-    public ResponseEntity<List<RatingDTO>> getProviderRatings(
-            @PathVariable UUID providerId) {
-        List<RatingDTO> ratings = ratingService.getProviderRatings(providerId);
-        return ResponseEntity.ok(ratings);
+    public ResponseEntity<CursorPageDTO<RatingDTO>> getProviderRatings(
+            @PathVariable UUID providerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            WebRequest webRequest) {
+        return httpCacheService.conditional(
+                webRequest, ResourceVersions.providerRatings(providerId), null, PUBLIC_CACHE,
+                () -> resourceVersions.providerRatingsVersion(providerId),
+                () -> ratingService.getProviderRatings(providerId, cursor, limit));
     }
 
     /**
@@ -51,8 +65,11 @@ public class RatingController {
      */
     @GetMapping("/providers/{providerId}/stats")
     public ResponseEntity<ProviderRatingStatsDTO> getProviderRatingStats(
-            @PathVariable UUID providerId) {
-        ProviderRatingStatsDTO stats = ratingService.getProviderRatingStats(providerId);
-        return ResponseEntity.ok(stats);
+            @PathVariable UUID providerId,
+            WebRequest webRequest) {
+        return httpCacheService.conditional(
+                webRequest, ResourceVersions.providerRatings(providerId), null, PUBLIC_CACHE,
+                () -> resourceVersions.providerRatingsVersion(providerId),
+                () -> ratingService.getProviderRatingStats(providerId));
     }
 }
\ No newline at end of file
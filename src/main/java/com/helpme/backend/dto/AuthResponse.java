@@ -11,6 +11,8 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class AuthResponse {
     private String token;
+    private String refreshToken;
+    private long expiresIn; // Thời gian sống của access token (giây)
     private UserDTO user;
     private boolean isNewUser;
 }
\ No newline at end of file
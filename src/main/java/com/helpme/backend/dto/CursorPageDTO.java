@@ -0,0 +1,20 @@
+package com.helpme.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+    private List<T> items;
+
+    // Truyền lại vào ?cursor= để lấy trang tiếp theo (null nếu hết)
+    private String nextCursor;
+    private boolean hasMore;
+}
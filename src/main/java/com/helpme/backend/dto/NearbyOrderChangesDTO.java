@@ -0,0 +1,27 @@
+package com.helpme.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyOrderChangesDTO {
+    // Orders mới xuất hiện trong khu vực
+    private List<OrderDTO> added;
+
+    // Orders không còn BROADCASTING (đã matched/cancelled)
+    private List<UUID> removed;
+
+    // Truyền lại vào ?cursor= ở lần gọi sau
+    private String cursor;
+
+    // true: cursor quá cũ, không có hoặc của instance khác / trước restart, "added" là toàn bộ danh sách, client thay thế list hiện tại
+    private boolean reset;
+}
@@ -31,6 +31,9 @@ public class OrderDTO {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Khoảng cách tới provider (chỉ có ở nearby search)
+    private Double distanceMeters;
+
     // Driver info (optional)
     private String driverName;
     private String driverPhone;
@@ -0,0 +1,22 @@
+package com.helpme.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PresignedUploadResponse {
+    private String uploadUrl; // URL presigned để client PUT file lên
+    private String method; // Luôn là PUT
+    private Map<String, String> headers; // Header bắt buộc gửi kèm (đã được ký)
+    private String path; // Relative path để lưu DB sau khi upload xong
+    private String url; // URL để hiển thị: /v1/files/orders/ab/cd/abc.jpg
+    private Instant expiresAt; // Hết hạn của uploadUrl
+}
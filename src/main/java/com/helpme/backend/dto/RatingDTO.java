@@ -1,6 +1,7 @@
 package com.helpme.backend.dto;
 
 import com.helpme.backend.entity.Rating;
+import com.helpme.backend.repository.RatingRepository.RatingView;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -41,4 +42,20 @@ public class RatingDTO {
                 .createdAt(rating.getCreatedAt())
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Convert projection (kèm driver info) -> DTO
+     */
+    public static RatingDTO from(RatingView view) {
+        return RatingDTO.builder()
+                .id(view.getId())
+                .orderId(view.getOrderId())
+                .providerId(view.getProviderId())
+                .rating(view.getRating())
+                .comment(view.getComment())
+                .createdAt(view.getCreatedAt())
+                .driverName(view.getDriverName())
+                .driverAvatar(view.getDriverAvatar())
+                .build();
+    }
+}
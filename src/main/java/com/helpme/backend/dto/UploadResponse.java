@@ -12,4 +12,5 @@ public class UploadResponse {
     private String path; // Relative path để lưu DB: orders/abc.jpg
     private String filename; // Tên file gốc
     private long size; // Kích thước file (bytes)
+    private long durationMs; // Thời gian xử lý file trên server (ms)
 }
\ No newline at end of file
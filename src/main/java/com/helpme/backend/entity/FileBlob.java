@@ -0,0 +1,36 @@
+package com.helpme.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * File ảnh lưu theo nội dung (SHA-256), updated_at là lần upload gần nhất (cập nhật qua FileBlobRepository)
+ */
+@Entity
+@Table(name = "file_blobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FileBlob {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private String path;
+
+    @Column(nullable = false)
+    private long sizeBytes;
+
+    @Column(nullable = false, length = 50)
+    private String contentType;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,73 @@
+package com.helpme.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Aggregate rating của provider (chỉ được cập nhật qua ProviderRatingStatsRepository.increment)
+ */
+@Entity
+@Table(name = "provider_rating_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProviderRatingStats {
+
+    @Id
+    @Column(name = "provider_id")
+    private UUID providerId;
+
+    private long ratingCount;
+
+    private long ratingSum;
+
+    @Column(name = "star_1")
+    private long star1;
+
+    @Column(name = "star_2")
+    private long star2;
+
+    @Column(name = "star_3")
+    private long star3;
+
+    @Column(name = "star_4")
+    private long star4;
+
+    @Column(name = "star_5")
+    private long star5;
+
+    private LocalDateTime updatedAt;
+
+    /**
+     * Rating trung bình làm tròn 1 chữ số (0 nếu chưa có rating)
+     */
+    public BigDecimal average() {
+        if (ratingCount == 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(ratingSum)
+                .divide(BigDecimal.valueOf(ratingCount), 1, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Số ratings theo từng mức sao: { 5: .., 4: .., 3: .., 2: .., 1: .. }
+     */
+    public Map<Integer, Long> breakdown() {
+        Map<Integer, Long> breakdown = new LinkedHashMap<>();
+        breakdown.put(5, star5);
+        breakdown.put(4, star4);
+        breakdown.put(3, star3);
+        breakdown.put(2, star2);
+        breakdown.put(1, star1);
+        return breakdown;
+    }
+}
@@ -26,6 +26,10 @@ public class Rating {
     @Column(name = "provider_id", nullable = false)
     private UUID providerId;
 
+    // Lưu cùng rating để hiển thị tên/avatar driver kể cả khi order đã archive
+    @Column(name = "driver_id")
+    private UUID driverId;
+
     @Column(nullable = false)
     private Integer rating; // 1-5
 
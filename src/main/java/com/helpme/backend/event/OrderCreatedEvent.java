@@ -0,0 +1,9 @@
+package com.helpme.backend.event;
+
+import com.helpme.backend.entity.Order;
+
+/**
+ * Phát ra khi driver tạo order mới (order vào trạng thái BROADCASTING)
+ */
+public record OrderCreatedEvent(Order order) {
+}
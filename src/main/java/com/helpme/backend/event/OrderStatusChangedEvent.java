@@ -0,0 +1,16 @@
+package com.helpme.backend.event;
+
+import com.helpme.backend.entity.OrderStatus;
+
+import java.util.UUID;
+
+/**
+ * Phát ra sau mỗi lần order chuyển trạng thái (listener nhận sau khi commit)
+ */
+public record OrderStatusChangedEvent(
+        UUID orderId,
+        UUID driverId,
+        UUID providerId,
+        OrderStatus from,
+        OrderStatus to) {
+}
@@ -0,0 +1,11 @@
+package com.helpme.backend.event;
+
+import com.helpme.backend.dto.QuoteDTO;
+
+import java.util.UUID;
+
+/**
+ * Phát ra khi provider gửi quote mới cho order (listener nhận sau khi commit)
+ */
+public record QuoteCreatedEvent(UUID orderId, UUID driverId, QuoteDTO quote) {
+}
@@ -0,0 +1,66 @@
+package com.helpme.backend.repository;
+
+import com.helpme.backend.entity.FileBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, String> {
+
+    /**
+     * Ghi nhận 1 lần upload blob (upsert atomic, tạo row nếu blob mới, làm mới updated_at)
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO file_blobs AS b
+                (hash, path, size_bytes, content_type, created_at, updated_at)
+            VALUES (:hash, :path, :sizeBytes, :contentType, NOW(), NOW())
+            ON CONFLICT (hash) DO UPDATE SET
+                updated_at = NOW()
+            """, nativeQuery = true)
+    int recordUpload(
+            @Param("hash") String hash,
+            @Param("path") String path,
+            @Param("sizeBytes") long sizeBytes,
+            @Param("contentType") String contentType);
+
+    /**
+     * Xóa row của blob không được upload lại kể từ idleBefore
+     */
+    @Modifying
+    @Query(value = "DELETE FROM file_blobs WHERE hash = :hash AND updated_at < :idleBefore", nativeQuery = true)
+    int deleteIfIdle(@Param("hash") String hash, @Param("idleBefore") LocalDateTime idleBefore);
+
+    /**
+     * Lọc ra các path (ngăn cách bởi '\n') đang được tham chiếu bởi orders,
+     * add-ons, users (kể cả bảng archive), dạng "orders/x.jpg" hoặc "/v1/files/orders/x.jpg"
+     * (URL được chuẩn hóa khi lưu order, xem StorageService.normalizeFileUrl và V20)
+     */
+    @Query(value = """
+            SELECT p FROM unnest(string_to_array(:paths, E'\\n')) AS p
+            WHERE EXISTS (
+                SELECT 1 FROM orders o
+                WHERE o.media_urls @> jsonb_build_array(p)
+                OR o.media_urls @> jsonb_build_array('/v1/files/' || p))
+            OR EXISTS (
+                SELECT 1 FROM orders_archive o
+                WHERE o.media_urls @> jsonb_build_array(p)
+                OR o.media_urls @> jsonb_build_array('/v1/files/' || p))
+            OR EXISTS (
+                SELECT 1 FROM add_ons a
+                WHERE a.evidence_image IN (p, '/v1/files/' || p))
+            OR EXISTS (
+                SELECT 1 FROM add_ons_archive a
+                WHERE a.evidence_image IN (p, '/v1/files/' || p))
+            OR EXISTS (
+                SELECT 1 FROM users u
+                WHERE u.avatar_url IN (p, '/v1/files/' || p))
+            """, nativeQuery = true)
+    List<String> findReferencedPaths(@Param("paths") String paths);
+}
@@ -2,12 +2,20 @@ package com.helpme.backend.repository;
 
 import com.helpme.backend.entity.Order;
 import com.helpme.backend.entity.OrderStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -16,14 +24,93 @@ import java.util.UUID;
 public interface OrderRepository extends JpaRepository<Order, UUID> {
 
     /**
-     * Lấy danh sách orders của driver (sắp xếp mới nhất trước)
+     * Lấy 1 trang lịch sử orders của driver (keyset theo created_at, id)
+     * Dùng index idx_orders_driver_created_id
      */
-    List<Order> findByDriverIdOrderByCreatedAtDesc(UUID driverId);
+    @Query(value = """
+            SELECT o.* FROM orders o
+            WHERE o.driver_id = :driverId
+            AND (o.created_at, o.id) < (:createdAt, :id)
+            ORDER BY o.created_at DESC, o.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Order> findDriverHistoryPage(
+            @Param("driverId") UUID driverId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            @Param("limit") int limit);
 
     /**
-     * Lấy danh sách orders của provider
+     * Lấy 1 trang lịch sử orders của provider (keyset theo created_at, id)
+     * Dùng index idx_orders_provider_created_id
      */
-    List<Order> findByProviderIdOrderByCreatedAtDesc(UUID providerId);
+    @Query(value = """
+            SELECT o.* FROM orders o
+            WHERE o.provider_id = :providerId
+            AND (o.created_at, o.id) < (:createdAt, :id)
+            ORDER BY o.created_at DESC, o.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Order> findProviderHistoryPage(
+            @Param("providerId") UUID providerId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            @Param("limit") int limit);
+
+    /**
+     * Lấy 1 trang lịch sử orders đã archive của driver (cùng keyset với findDriverHistoryPage)
+     * Dùng index idx_orders_archive_driver_created_id
+     */
+    @Query(value = """
+            SELECT o.id, o.driver_id, o.provider_id, o.status, o.service_type, o.pickup_location,
+                o.description, o.media_urls, o.final_amount, o.broadcast_radius, o.created_at, o.updated_at
+            FROM orders_archive o
+            WHERE o.driver_id = :driverId
+            AND (o.created_at, o.id) < (:createdAt, :id)
+            ORDER BY o.created_at DESC, o.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<Order> findDriverArchivedHistoryPage(
+            @Param("driverId") UUID driverId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            @Param("limit") int limit);
+
+    /**
+     * Lấy 1 trang lịch sử orders đã archive của provider
+     * Dùng index idx_orders_archive_provider_created_id
+     */
+    @Query(value = """
+            SELECT o.id, o.driver_id, o.provider_id, o.status, o.service_type, o.pickup_location,
+                o.description, o.media_urls, o.final_amount, o.broadcast_radius, o.created_at, o.updated_at
+            FROM orders_archive o
+            WHERE o.provider_id = :providerId
+            AND (o.created_at, o.id) < (:createdAt, :id)
+            ORDER BY o.created_at DESC, o.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<Order> findProviderArchivedHistoryPage(
+            @Param("providerId") UUID providerId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            @Param("limit") int limit);
+
+    /**
+     * Version của order detail cho ETag: các cột hay đổi của order + card của driver/provider
+     */
+    @Query(value = """
+            SELECT md5(CONCAT_WS('|', o.updated_at, o.status, o.final_amount, o.provider_id,
+                d.full_name, d.phone, d.avatar_url, d.updated_at,
+                p.org_name, p.rating_avg, u.phone, u.avatar_url, u.updated_at))
+            FROM orders o
+            LEFT JOIN users d ON d.id = o.driver_id
+            LEFT JOIN providers p ON p.id = o.provider_id
+            LEFT JOIN users u ON u.id = o.provider_id
+            WHERE o.id = :orderId
+            """, nativeQuery = true)
+    Optional<String> findDetailVersion(@Param("orderId") UUID orderId);
 
     /**
      * Lấy order theo ID và kiểm tra ownership của driver
@@ -45,6 +132,40 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
             @Param("status") OrderStatus status,
             @Param("cutoffTime") LocalDateTime cutoffTime);
 
+    /**
+     * Lấy orders theo danh sách status
+     */
+    List<Order> findByStatusIn(Collection<OrderStatus> statuses);
+
+    /**
+     * Orders BROADCASTING / IN_SERVICE mà deadline của trạng thái hiện tại chưa được nhắc
+     * (dùng để rebuild / đối soát deadline wheel)
+     */
+    @Query(value = """
+            SELECT o.* FROM orders o
+            WHERE o.status IN ('BROADCASTING', 'IN_SERVICE')
+            AND NOT EXISTS (
+                SELECT 1 FROM order_deadline_notifications n
+                WHERE n.order_id = o.id AND n.status = o.status)
+            """, nativeQuery = true)
+    List<Order> findPendingDeadlineOrders();
+
+    /**
+     * Giành quyền nhắc deadline của order ở trạng thái status
+     *
+     * @return 1 nếu caller được gửi push, 0 nếu đã có node / lần fire khác nhắc rồi
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO order_deadline_notifications (order_id, status, notified_at)
+            VALUES (:orderId, :status, NOW())
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int claimDeadlineNotification(
+            @Param("orderId") UUID orderId,
+            @Param("status") String status);
+
     /**
      * Tìm các orders đang BROADCASTING trong bán kính
      * Dùng cho Provider tìm kiếm orders gần họ
@@ -84,4 +205,105 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
             "AND o.status IN ('MATCHED', 'EN_ROUTE', 'ARRIVED', 'IN_SERVICE') " +
             "ORDER BY o.createdAt DESC")
     Optional<Order> findActiveOrderByProviderId(@Param("providerId") UUID providerId);
-}
\ No newline at end of file
+
+    /**
+     * Chuyển order BROADCASTING -> MATCHED bằng 1 conditional update
+     * Trả về 0 nếu order không còn BROADCASTING (đã được accept bởi request khác)
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.status = 'MATCHED', o.providerId = :providerId, " +
+            "o.finalAmount = :finalAmount, o.updatedAt = :now " +
+            "WHERE o.id = :orderId AND o.driverId = :driverId AND o.status = 'BROADCASTING'")
+    int matchIfBroadcasting(
+            @Param("orderId") UUID orderId,
+            @Param("driverId") UUID driverId,
+            @Param("providerId") UUID providerId,
+            @Param("finalAmount") BigDecimal finalAmount,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Đổi trạng thái order nếu vẫn đang ở trạng thái expected
+     * Dùng bởi OrderStateMachine (trả về 0 nếu đã bị request khác đổi)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :next, o.updatedAt = :now " +
+            "WHERE o.id = :orderId AND o.status = :expected")
+    int transitionStatus(
+            @Param("orderId") UUID orderId,
+            @Param("expected") OrderStatus expected,
+            @Param("next") OrderStatus next,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Chuyển 1 batch orders COMPLETED/CANCELLED (updated_at < cutoff) cùng quotes,
+     * add_ons sang bảng archive trong 1 câu lệnh (DELETE ... RETURNING -> INSERT).
+     * Ratings giữ ở bảng ratings (trang review công khai của provider đọc toàn bộ).
+     * SKIP LOCKED để nhiều instance chạy song song không đụng nhau.
+     *
+     * @return Số orders đã archive
+     */
+    @Modifying
+    @Query(value = """
+            WITH batch AS (
+                SELECT id FROM orders
+                WHERE status IN ('COMPLETED', 'CANCELLED')
+                AND updated_at < :cutoff
+                ORDER BY updated_at
+                LIMIT :batchSize
+                FOR UPDATE SKIP LOCKED
+            ),
+            moved_quotes AS (
+                DELETE FROM quotes q USING batch b
+                WHERE q.order_id = b.id
+                RETURNING q.*
+            ),
+            archived_quotes AS (
+                INSERT INTO quotes_archive (id, order_id, provider_id, status, base_price,
+                    distance_price, material_price, total_est, location_source, eta_minutes,
+                    notes, created_at)
+                SELECT id, order_id, provider_id, status, base_price,
+                    distance_price, material_price, total_est, location_source, eta_minutes,
+                    notes, created_at
+                FROM moved_quotes
+            ),
+            moved_add_ons AS (
+                DELETE FROM add_ons a USING batch b
+                WHERE a.order_id = b.id
+                RETURNING a.*
+            ),
+            archived_add_ons AS (
+                INSERT INTO add_ons_archive (id, order_id, reason_code, reason_text, amount,
+                    status, evidence_image, created_at, approved_at, rejected_at)
+                SELECT id, order_id, reason_code, reason_text, amount,
+                    status, evidence_image, created_at, approved_at, rejected_at
+                FROM moved_add_ons
+            ),
+            moved_deadline_notifications AS (
+                DELETE FROM order_deadline_notifications n USING batch b
+                WHERE n.order_id = b.id
+            ),
+            moved_orders AS (
+                DELETE FROM orders o USING batch b
+                WHERE o.id = b.id
+                RETURNING o.*
+            )
+            INSERT INTO orders_archive (id, driver_id, provider_id, status, service_type,
+                pickup_location, description, media_urls, final_amount, broadcast_radius,
+                created_at, updated_at)
+            SELECT id, driver_id, provider_id, status, service_type,
+                pickup_location, description, media_urls, final_amount, broadcast_radius,
+                created_at, updated_at
+            FROM moved_orders
+            """, nativeQuery = true)
+    int archiveFinishedOrders(
+            @Param("cutoff") LocalDateTime cutoff,
+            @Param("batchSize") int batchSize);
+
+    /**
+     * Tạo partition theo tháng cho bảng archive (nếu chưa có)
+     */
+    @Query(value = "SELECT ensure_monthly_partition(:parent, CAST(:monthStart AS date))", nativeQuery = true)
+    String ensureMonthlyPartition(
+            @Param("parent") String parent,
+            @Param("monthStart") LocalDate monthStart);
+}
@@ -0,0 +1,65 @@
+package com.helpme.backend.repository;
+
+import com.helpme.backend.entity.ProviderRatingStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ProviderRatingStatsRepository extends JpaRepository<ProviderRatingStats, UUID> {
+
+    /**
+     * Version ratings của provider cho ETag (tăng mỗi khi có rating mới)
+     */
+    @Query(value = """
+            SELECT CONCAT_WS('|', s.rating_count, s.updated_at)
+            FROM provider_rating_stats s
+            WHERE s.provider_id = :providerId
+            """, nativeQuery = true)
+    Optional<String> findVersion(@Param("providerId") UUID providerId);
+
+    /**
+     * Cộng 1 rating vào aggregate (upsert atomic, không cần đọc trước)
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO provider_rating_stats AS s
+                (provider_id, rating_count, rating_sum, star_1, star_2, star_3, star_4, star_5, updated_at)
+            VALUES (:providerId, 1, :rating,
+                CASE WHEN :rating = 1 THEN 1 ELSE 0 END,
+                CASE WHEN :rating = 2 THEN 1 ELSE 0 END,
+                CASE WHEN :rating = 3 THEN 1 ELSE 0 END,
+                CASE WHEN :rating = 4 THEN 1 ELSE 0 END,
+                CASE WHEN :rating = 5 THEN 1 ELSE 0 END,
+                NOW())
+            ON CONFLICT (provider_id) DO UPDATE SET
+                rating_count = s.rating_count + 1,
+                rating_sum = s.rating_sum + EXCLUDED.rating_sum,
+                star_1 = s.star_1 + EXCLUDED.star_1,
+                star_2 = s.star_2 + EXCLUDED.star_2,
+                star_3 = s.star_3 + EXCLUDED.star_3,
+                star_4 = s.star_4 + EXCLUDED.star_4,
+                star_5 = s.star_5 + EXCLUDED.star_5,
+                updated_at = NOW()
+            """, nativeQuery = true)
+    int increment(@Param("providerId") UUID providerId, @Param("rating") int rating);
+
+    /**
+     * Đồng bộ providers.rating_avg từ aggregate (cùng transaction với increment)
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE providers p
+            SET rating_avg = ROUND(CAST(s.rating_sum AS numeric) / s.rating_count, 1)
+            FROM provider_rating_stats s
+            WHERE s.provider_id = p.id
+            AND p.id = :providerId
+            AND s.rating_count > 0
+            """, nativeQuery = true)
+    int syncProviderRatingAvg(@Param("providerId") UUID providerId);
+}
@@ -10,11 +10,23 @@ import org.locationtech.jts.geom.Point;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ProviderRepository extends JpaRepository<Provider, UUID> {
 
+    /**
+     * Version profile của provider cho ETag (providers không có updated_at nên hash cả row)
+     */
+    @Query(value = """
+            SELECT md5(CONCAT_WS('|', CAST(p AS text), u.phone, u.avatar_url, u.updated_at))
+            FROM providers p
+            LEFT JOIN users u ON u.id = p.id
+            WHERE p.id = :providerId
+            """, nativeQuery = true)
+    Optional<String> findProfileVersion(@Param("providerId") UUID providerId);
+
     /**
      * Tìm các provider ONLINE trong bán kính radiusMeters
      * Sử dụng PostGIS ST_DWithin cho hiệu năng tốt
@@ -20,6 +20,19 @@ public interface QuoteRepository extends JpaRepository<Quote, UUID> {
      */
     List<Quote> findByOrderIdOrderByCreatedAtAsc(UUID orderId);
 
+    /**
+     * Version danh sách quotes của order cho ETag: status của từng quote + card của provider
+     */
+    @Query(value = """
+            SELECT md5(COALESCE(string_agg(CONCAT_WS('|', q.id, q.status, q.total_est, q.eta_minutes,
+                p.org_name, p.rating_avg, u.phone, u.avatar_url, u.updated_at), ',' ORDER BY q.id), ''))
+            FROM quotes q
+            LEFT JOIN providers p ON p.id = q.provider_id
+            LEFT JOIN users u ON u.id = q.provider_id
+            WHERE q.order_id = :orderId
+            """, nativeQuery = true)
+    String findListVersion(@Param("orderId") UUID orderId);
+
     /**
      * Lấy quotes theo provider
      */
@@ -40,6 +53,14 @@ public interface QuoteRepository extends JpaRepository<Quote, UUID> {
      */
     Optional<Quote> findByOrderIdAndStatus(UUID orderId, QuoteStatus status);
 
+    /**
+     * Accept quote nếu vẫn còn PENDING (trả về 0 nếu không)
+     */
+    @Modifying
+    @Query("UPDATE Quote q SET q.status = 'ACCEPTED' " +
+            "WHERE q.id = :quoteId AND q.status = 'PENDING'")
+    int acceptIfPending(@Param("quoteId") UUID quoteId);
+
     /**
      * Reject tất cả quotes khác khi driver accept 1 quote
      */
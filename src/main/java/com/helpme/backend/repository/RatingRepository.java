@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,29 +15,52 @@ import java.util.UUID;
 public interface RatingRepository extends JpaRepository<Rating, UUID> {
 
     /**
-     * Kiểm tra order đã được rate chưa
+     * Projection rating + thông tin driver (kết quả của findProviderRatingsPage)
      */
-    Optional<Rating> findByOrderId(UUID orderId);
+    interface RatingView {
+        UUID getId();
 
-    /**
-     * Lấy tất cả ratings của provider
-     */
-    List<Rating> findByProviderIdOrderByCreatedAtDesc(UUID providerId);
+        UUID getOrderId();
+
+        UUID getProviderId();
+
+        Integer getRating();
+
+        String getComment();
+
+        LocalDateTime getCreatedAt();
+
+        String getDriverName();
+
+        String getDriverAvatar();
+    }
 
     /**
-     * Tính rating trung bình của provider
+     * Kiểm tra order đã được rate chưa
      */
-    @Query("SELECT AVG(r.rating) FROM Rating r WHERE r.providerId = :providerId")
-    Double calculateAverageRating(@Param("providerId") UUID providerId);
+    Optional<Rating> findByOrderId(UUID orderId);
 
     /**
-     * Đếm số ratings theo từng mức (1-5 sao)
+     * Lấy 1 trang ratings của provider (keyset theo created_at, id) kèm tên/avatar driver
+     * trong 1 query (join users qua ratings.driver_id, không qua orders đã có thể bị archive).
+     * Dùng index idx_ratings_provider_created_id
      */
-    @Query("SELECT r.rating, COUNT(r) FROM Rating r " +
-            "WHERE r.providerId = :providerId " +
-            "GROUP BY r.rating " +
-            "ORDER BY r.rating DESC")
-    List<Object[]> countRatingsByLevel(@Param("providerId") UUID providerId);
+    @Query(value = """
+            SELECT r.id AS id, r.order_id AS orderId, r.provider_id AS providerId,
+                r.rating AS rating, r.comment AS comment, r.created_at AS createdAt,
+                u.full_name AS driverName, u.avatar_url AS driverAvatar
+            FROM ratings r
+            LEFT JOIN users u ON u.id = r.driver_id
+            WHERE r.provider_id = :providerId
+            AND (r.created_at, r.id) < (:createdAt, :id)
+            ORDER BY r.created_at DESC, r.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<RatingView> findProviderRatingsPage(
+            @Param("providerId") UUID providerId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") UUID id,
+            @Param("limit") int limit);
 
     /**
      * Kiểm tra order đã được rate chưa
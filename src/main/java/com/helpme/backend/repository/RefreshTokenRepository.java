@@ -0,0 +1,46 @@
+package com.helpme.backend.repository;
+
+import com.helpme.backend.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    /**
+     * Revoke token nếu chưa bị revoke (trả về 0 nếu đã bị dùng rồi)
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now " +
+            "WHERE t.id = :id AND t.revokedAt IS NULL")
+    int revokeIfActive(@Param("id") UUID id, @Param("now") LocalDateTime now);
+
+    /**
+     * Revoke toàn bộ chuỗi token (khi phát hiện reuse)
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now " +
+            "WHERE t.familyId = :familyId AND t.revokedAt IS NULL")
+    int revokeFamily(@Param("familyId") UUID familyId, @Param("now") LocalDateTime now);
+
+    /**
+     * Revoke tất cả refresh tokens của user (logout khỏi mọi thiết bị)
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now " +
+            "WHERE t.userId = :userId AND t.revokedAt IS NULL")
+    int revokeAllByUserId(@Param("userId") UUID userId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < :cutoff")
+    int deleteExpired(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,28 @@
+package com.helpme.backend.repository;
+
+import com.helpme.backend.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    /**
+     * Lấy các token bị revoke kể từ lần sync trước (chưa hết hạn)
+     */
+    @Query("SELECT t FROM RevokedToken t " +
+            "WHERE t.revokedAt > :since AND t.expiresAt > :now")
+    List<RevokedToken> findRevokedSince(
+            @Param("since") LocalDateTime since,
+            @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM RevokedToken t WHERE t.expiresAt < :cutoff")
+    int deleteExpired(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -3,6 +3,7 @@ package com.helpme.backend.repository;
 import com.helpme.backend.entity.User;
 import com.helpme.backend.entity.UserRole;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,4 +18,10 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     boolean existsByPhone(String phone);
 
     List<User> findByRole(UserRole role);
+
+    /**
+     * Lấy tất cả số điện thoại (dùng để build phone lookup filter)
+     */
+    @Query("SELECT u.phone FROM User u")
+    List<String> findAllPhones();
 }
\ No newline at end of file
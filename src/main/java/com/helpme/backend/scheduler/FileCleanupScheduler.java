@@ -0,0 +1,53 @@
+package com.helpme.backend.scheduler;
+
+import com.helpme.backend.service.OrphanFileCollector;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConditionalOnProperty(name = "file.storage-type", havingValue = "local", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class FileCleanupScheduler {
+
+    private final OrphanFileCollector orphanFileCollector;
+
+    @Value("${file.gc.enabled:false}")
+    private boolean enabled;
+
+    @Value("${file.gc.grace-hours:24}")
+    private int graceHours;
+
+    @Value("${file.gc.batch-size:500}")
+    private int batchSize;
+
+    @Value("${file.gc.batch-pause-ms:100}")
+    private long batchPauseMs;
+
+    /**
+     * Chạy mỗi ngày lúc 3:30 AM (sau archive orders) để xóa file upload không còn được tham chiếu
+     */
+    @Scheduled(cron = "0 30 3 * * *")
+    public void collectOrphanFiles() {
+        if (!enabled) {
+            return;
+        }
+
+        log.info("🧹 Running orphan file cleanup");
+        try {
+            OrphanFileCollector.Result result = orphanFileCollector.collect(
+                    Duration.ofHours(graceHours), batchSize, batchPauseMs);
+
+            log.info("✅ Orphan cleanup: scanned {} files, deleted {} ({} bytes), removed {} empty directories",
+                    result.scanned(), result.deleted(), result.bytesFreed(), result.directoriesRemoved());
+        } catch (Exception e) {
+            log.error("❌ Orphan file cleanup failed", e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.helpme.backend.scheduler;
+
+import com.helpme.backend.entity.Order;
+import com.helpme.backend.entity.OrderStatus;
+import com.helpme.backend.event.OrderCreatedEvent;
+import com.helpme.backend.event.OrderStatusChangedEvent;
+import com.helpme.backend.repository.OrderRepository;
+import com.helpme.backend.repository.UserRepository;
+import com.helpme.backend.service.NotificationService;
+import com.helpme.backend.util.HashedTimingWheel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Quản lý deadline của orders bằng timing wheel thay vì quét bảng:
+ * - BROADCASTING quá 15 phút -> nhắc driver mở rộng bán kính
+ * - IN_SERVICE quá 2 giờ -> nhắc provider cập nhật status
+ *
+ * Mỗi deadline chỉ nhắc 1 lần (không lặp lại định kỳ): trước khi gửi push phải
+ * giành được row trong order_deadline_notifications, nên reconcile / rebuild / nhiều
+ * node cùng arm 1 deadline cũng chỉ 1 lần fire gửi push.
+ * Deadline được arm khi order vào trạng thái, hủy khi order rời trạng thái,
+ * và rebuild từ DB khi khởi động (bỏ qua deadline đã nhắc).
+ */
+@Component
+@Slf4j
+public class OrderDeadlineScheduler {
+
+    static final Duration STALE_BROADCAST_AFTER = Duration.ofMinutes(15);
+    static final Duration LONG_SERVICE_AFTER = Duration.ofHours(2);
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 512;
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final NotificationService notificationService;
+
+    private final ExecutorService taskExecutor;
+    private final HashedTimingWheel wheel;
+
+    public OrderDeadlineScheduler(
+            OrderRepository orderRepository,
+            UserRepository userRepository,
+            NotificationService notificationService) {
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.notificationService = notificationService;
+
+        this.taskExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "order-deadline-task");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.wheel = new HashedTimingWheel("order-deadline-wheel", TICK_MILLIS, WHEEL_SIZE, taskExecutor);
+        this.wheel.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.stop();
+        taskExecutor.shutdownNow();
+    }
+
+    /**
+     * Rebuild wheel từ các orders đang active khi app khởi động
+     * Deadline đã qua sẽ fire ngay ở tick đầu tiên
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Order> orders = loadTrackedOrders();
+        orders.forEach(this::arm);
+
+        log.info("⏱️ Deadline wheel rebuilt with {} orders", orders.size());
+    }
+
+    /**
+     * Đối soát định kỳ: arm lại orders bị lỡ event (vd: lỗi giữa commit và listener)
+     * Chỉ fire deadline đã qua trong cửa sổ gracePeriod để không nhắc lặp lại
+     */
+    public void reconcile(Duration gracePeriod) {
+        long notBefore = System.currentTimeMillis() - gracePeriod.toMillis();
+        int rearmed = 0;
+
+        for (Order order : loadTrackedOrders()) {
+            if (wheel.contains(key(order.getId()))) {
+                continue;
+            }
+            if (deadlineOf(order.getStatus(), order) >= notBefore) {
+                arm(order);
+                rearmed++;
+            }
+        }
+
+        if (rearmed > 0) {
+            log.warn("⚠️ Re-armed {} missing order deadlines", rearmed);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        arm(event.order());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.to() == OrderStatus.IN_SERVICE) {
+            schedule(event.orderId(), OrderStatus.IN_SERVICE,
+                    System.currentTimeMillis() + LONG_SERVICE_AFTER.toMillis());
+        } else {
+            wheel.cancel(key(event.orderId()));
+        }
+    }
+
+    public int trackedCount() {
+        return wheel.size();
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private List<Order> loadTrackedOrders() {
+        return orderRepository.findPendingDeadlineOrders();
+    }
+
+    private void arm(Order order) {
+        schedule(order.getId(), order.getStatus(), deadlineOf(order.getStatus(), order));
+    }
+
+    private void schedule(UUID orderId, OrderStatus status, long deadlineMillis) {
+        wheel.schedule(key(orderId), deadlineMillis, () -> onDeadline(orderId, status));
+    }
+
+    private long deadlineOf(OrderStatus status, Order order) {
+        if (status == OrderStatus.IN_SERVICE) {
+            LocalDateTime enteredAt = order.getUpdatedAt() != null ? order.getUpdatedAt() : order.getCreatedAt();
+            return toEpochMillis(enteredAt) + LONG_SERVICE_AFTER.toMillis();
+        }
+        return toEpochMillis(order.getCreatedAt()) + STALE_BROADCAST_AFTER.toMillis();
+    }
+
+    /**
+     * Callback khi hết hạn: kiểm tra lại status trong DB và giành quyền nhắc trước khi xử lý
+     */
+    private void onDeadline(UUID orderId, OrderStatus expectedStatus) {
+        try {
+            orderRepository.findById(orderId)
+                    .filter(order -> order.getStatus() == expectedStatus)
+                    .filter(order -> orderRepository.claimDeadlineNotification(orderId, expectedStatus.name()) > 0)
+                    .ifPresent(order -> {
+                        if (expectedStatus == OrderStatus.BROADCASTING) {
+                            notifyStaleOrder(order);
+                        } else {
+                            log.warn("⚠️ Order {} has been IN_SERVICE for over {} hours",
+                                    order.getId(), LONG_SERVICE_AFTER.toHours());
+                            notifyLongRunningService(order);
+                        }
+                    });
+        } catch (Exception e) {
+            log.error("❌ Failed to handle deadline for order {}: {}", orderId, e.getMessage());
+        }
+    }
+
+    private void notifyStaleOrder(Order order) {
+        userRepository.findById(order.getDriverId()).ifPresent(driver -> {
+            if (driver.getPushToken() != null) {
+                notificationService.sendPushNotification(
+                        driver.getPushToken(),
+                        "Không tìm thấy thợ cứu hộ",
+                        "Đơn hàng của bạn chưa có ai nhận. Vui lòng thử lại hoặc mở rộng bán kính tìm kiếm.");
+
+                log.info("📲 Notified driver {} about stale order {}",
+                        driver.getId(), order.getId());
+            }
+        });
+    }
+
+    private void notifyLongRunningService(Order order) {
+        if (order.getProviderId() == null) {
+            return;
+        }
+
+        userRepository.findById(order.getProviderId()).ifPresent(provider -> {
+            if (provider.getPushToken() != null) {
+                notificationService.sendPushNotification(
+                        provider.getPushToken(),
+                        "Đơn hàng đang xử lý quá lâu",
+                        "Đơn hàng đã ở trạng thái đang xử lý hơn 2 giờ. Vui lòng cập nhật trạng thái khi hoàn thành.");
+
+                log.info("📲 Notified provider {} about long-running order {}",
+                        provider.getId(), order.getId());
+            }
+        });
+    }
+
+    private static String key(UUID orderId) {
+        return orderId.toString();
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        LocalDateTime value = time != null ? time : LocalDateTime.now();
+        return value.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -1,92 +1,95 @@
 package com.helpme.backend.scheduler;
 
-import com.helpme.backend.entity.Order;
-import com.helpme.backend.entity.OrderStatus;
-import com.helpme.backend.entity.User;
-import com.helpme.backend.repository.OrderRepository;
-import com.helpme.backend.repository.UserRepository;
-import com.helpme.backend.service.NotificationService;
+import com.helpme.backend.service.OrderArchiveService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class OrderScheduler {
 
-    private final OrderRepository orderRepository;
-    private final UserRepository userRepository;
-    private final NotificationService notificationService;
+    private static final Duration RECONCILE_INTERVAL = Duration.ofMinutes(30);
+
+    private final OrderDeadlineScheduler orderDeadlineScheduler;
+    private final OrderArchiveService orderArchiveService;
+
+    @Value("${orders.archive.after-days:30}")
+    private int archiveAfterDays;
+
+    @Value("${orders.archive.batch-size:500}")
+    private int archiveBatchSize;
+
+    @Value("${orders.archive.max-batches:200}")
+    private int archiveMaxBatches;
+
+    @Value("${orders.archive.batch-pause-ms:200}")
+    private long archiveBatchPauseMs;
 
     /**
-     * Chạy mỗi 5 phút để check orders bị "stale" (quá lâu ở trạng thái
-     * BROADCASTING)
-     * Gửi thông báo cho driver để mở rộng bán kính hoặc thử lại
+     * Chạy mỗi 30 phút để đối soát deadline wheel với DB
+     * Stale/long-running orders được xử lý đúng hạn bởi OrderDeadlineScheduler,
+     * job này chỉ arm lại các orders bị lỡ event
      */
-    @Scheduled(fixedRate = 300000) // 5 minutes = 5 * 60 * 1000
-    public void checkStaleOrders() {
-        LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(15);
-
-        List<Order> staleOrders = orderRepository.findStaleOrders(
-                OrderStatus.BROADCASTING,
-                cutoffTime);
-
-        if (!staleOrders.isEmpty()) {
-            log.info("⏰ Found {} stale orders", staleOrders.size());
-
-            staleOrders.forEach(order -> {
-                // Notify driver
-                userRepository.findById(order.getDriverId()).ifPresent(driver -> {
-                    if (driver.getPushToken() != null) {
-                        notificationService.sendPushNotification(
-                                driver.getPushToken(),
-                                "Không tìm thấy thợ cứu hộ",
-                                "Đơn hàng của bạn chưa có ai nhận. Vui lòng thử lại hoặc mở rộng bán kính tìm kiếm.");
-
-                        log.info("📲 Notified driver {} about stale order {}",
-                                driver.getId(), order.getId());
-                    }
-                });
-            });
-        }
+    @Scheduled(fixedRate = 1800000, initialDelay = 1800000) // 30 minutes
+    public void reconcileOrderDeadlines() {
+        orderDeadlineScheduler.reconcile(RECONCILE_INTERVAL);
     }
 
     /**
-     * Chạy mỗi ngày lúc 2:00 AM để clean up orders cũ
+     * Tạo trước partition archive khi khởi động (phòng trường hợp app dừng lâu qua đầu tháng)
      */
-    @Scheduled(cron = "0 0 2 * * *")
-    public void cleanupOldOrders() {
-        // TODO: Archive hoặc xóa orders đã COMPLETED/CANCELLED quá 30 ngày
-        log.info("🧹 Running cleanup task for old orders");
-
-        LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
-
-        // Example: Có thể move sang bảng archive hoặc soft delete
-        // orderRepository.archiveOldOrders(thirtyDaysAgo);
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensurePartitionsOnStartup() {
+        try {
+            orderArchiveService.ensurePartitions();
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to ensure archive partitions: {}", e.getMessage());
+        }
     }
 
     /**
-     * Chạy mỗi 1 phút để check orders đang IN_SERVICE quá lâu
-     * Có thể là provider quên update status
+     * Chạy mỗi ngày lúc 2:00 AM để archive orders COMPLETED/CANCELLED quá 30 ngày
+     * (tạo trước partition tháng tới của các bảng archive)
+     * Chạy theo batch nhỏ, nghỉ giữa các batch để không chiếm DB quá lâu
      */
-    @Scheduled(fixedRate = 60000) // 1 minute
-    public void checkLongRunningServiceOrders() {
-        LocalDateTime twoHoursAgo = LocalDateTime.now().minusHours(2);
-
-        List<Order> longRunningOrders = orderRepository.findStaleOrders(
-                OrderStatus.IN_SERVICE,
-                twoHoursAgo);
+    @Scheduled(cron = "0 0 2 * * *")
+    public void cleanupOldOrders() {
+        log.info("🧹 Running cleanup task for old orders");
 
-        if (!longRunningOrders.isEmpty()) {
-            log.warn("⚠️ Found {} orders in IN_SERVICE for over 2 hours",
-                    longRunningOrders.size());
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(archiveAfterDays);
+        try {
+            orderArchiveService.ensurePartitions();
+        } catch (Exception e) {
+            // Vẫn archive tiếp: row ngoài các tháng đã tạo rơi vào partition DEFAULT
+            log.warn("⚠️ Failed to ensure archive partitions: {}", e.getMessage());
+        }
 
-            // TODO: Có thể gửi alert cho admin hoặc notify driver
+        int total = 0;
+        for (int i = 0; i < archiveMaxBatches; i++) {
+            int archived = orderArchiveService.archiveBatch(cutoff, archiveBatchSize);
+            total += archived;
+
+            if (archived < archiveBatchSize) {
+                break;
+            }
+
+            try {
+                Thread.sleep(archiveBatchPauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
         }
+
+        log.info("✅ Archived {} orders finished before {}", total, cutoff);
     }
-}
\ No newline at end of file
+}
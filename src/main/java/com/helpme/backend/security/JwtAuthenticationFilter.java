@@ -2,6 +2,8 @@ package com.helpme.backend.security;
 
 import com.helpme.backend.entity.User;
 import com.helpme.backend.repository.UserRepository;
+import com.helpme.backend.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -25,6 +27,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserRepository userRepository;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
     protected void doFilterInternal(
@@ -37,9 +40,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String token = authHeader.substring(7);
+                Claims claims = jwtUtil.parseValidClaims(token);
 
-                if (jwtUtil.validateToken(token)) {
-                    String phone = jwtUtil.extractPhone(token);
+                // Revocation check từ memory (không query DB)
+                if (claims != null && tokenRevocationService.isRevoked(claims.getId())) {
+                    log.debug("Rejected revoked token {}", claims.getId());
+                    claims = null;
+                }
+
+                if (claims != null) {
+                    String phone = claims.getSubject();
 
                     // Load user từ database
                     User user = userRepository.findByPhone(phone).orElse(null);
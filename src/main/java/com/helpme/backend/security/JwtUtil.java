@@ -34,7 +34,7 @@ public class JwtUtil {
     }
 
     /**
-     * Generate JWT token từ User
+     * Generate JWT access token từ User (short-lived, có jti để revoke)
      */
     public String generateToken(User user) {
         Map<String, Object> claims = new HashMap<>();
@@ -44,6 +44,7 @@ public class JwtUtil {
 
         return Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(user.getPhone())
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + expiration))
@@ -77,6 +78,20 @@ public class JwtUtil {
         return UUID.fromString(userIdStr);
     }
 
+    /**
+     * Extract token id (jti) từ token
+     */
+    public String extractTokenId(String token) {
+        return extractClaims(token).getId();
+    }
+
+    /**
+     * Thời gian sống của access token (giây)
+     */
+    public long getExpirationSeconds() {
+        return expiration / 1000;
+    }
+
     /**
      * Extract role từ token
      */
@@ -84,6 +99,19 @@ public class JwtUtil {
         return extractClaims(token).get("role", String.class);
     }
 
+    /**
+     * Parse và validate token trong 1 lần, trả về null nếu không hợp lệ
+     * (parser đã tự kiểm tra chữ ký và expiration)
+     */
+    public Claims parseValidClaims(String token) {
+        try {
+            return extractClaims(token);
+        } catch (Exception e) {
+            log.error("Invalid JWT token: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Validate token
      */
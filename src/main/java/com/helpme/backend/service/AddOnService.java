@@ -28,7 +28,7 @@ public class AddOnService {
 
     private final AddOnRepository addOnRepository;
     private final OrderRepository orderRepository;
-    private final LocalStorageService storageService;
+    private final StorageService storageService;
 private final SocketIOService socketService;  // ✅ Add this
     
     /**
@@ -1,12 +1,14 @@
 package com.helpme.backend.service;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.helpme.backend.dto.AuthResponse;
 import com.helpme.backend.dto.CheckPhoneResponse;
 import com.helpme.backend.dto.UserDTO;
 import com.helpme.backend.dto.VerifyOTPRequest;
+import com.helpme.backend.exception.UnauthorizedException;
 import com.helpme.backend.entity.Provider;
 import com.helpme.backend.entity.User;
 import com.helpme.backend.entity.UserRole;
@@ -14,9 +16,14 @@ import com.helpme.backend.repository.ProviderRepository;
 import com.helpme.backend.repository.UserRepository;
 import com.helpme.backend.security.JwtUtil;
 
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
 @Service
 @RequiredArgsConstructor
 @Transactional
@@ -27,26 +34,25 @@ public class AuthService {
     private final UserRepository userRepository;
     private final OTPService otpService;
     private final JwtUtil jwtUtil;
+    private final PhoneLookupCache phoneLookupCache;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
 
     /**
      * Kiểm tra số điện thoại đã tồn tại chưa
+     * (không mở transaction - cache hit không cần DB connection)
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public CheckPhoneResponse checkPhone(String phone) {
-        User user = userRepository.findByPhone(phone).orElse(null);
-
-        if (user != null) {
-            log.info("Phone {} exists with role {}", phone, user.getRole());
-            return CheckPhoneResponse.builder()
-                    .exists(true)
-                    .role(user.getRole())
-                    .fullName(user.getFullName())
-                    .build();
+        CheckPhoneResponse response = phoneLookupCache.lookup(phone);
+
+        if (response.isExists()) {
+            log.info("Phone {} exists with role {}", phone, response.getRole());
         } else {
             log.info("Phone {} is new", phone);
-            return CheckPhoneResponse.builder()
-                    .exists(false)
-                    .build();
         }
+
+        return response;
     }
 
     /**
@@ -88,6 +94,7 @@ public class AuthService {
 
             user = userRepository.save(user);
             isNewUser = true;
+            phoneLookupCache.onRegistered(user.getPhone());
 
             if (request.getRole().equals(UserRole.PROVIDER)) {
                 // Tạo provider record tương ứng
@@ -107,16 +114,65 @@ public class AuthService {
             log.info("✅ User logged in: {} ({})", user.getPhone(), user.getRole());
         }
 
-        // Generate JWT token
+        // Generate JWT token + refresh token
         String token = jwtUtil.generateToken(user);
+        String refreshToken = refreshTokenService.issue(user.getId());
 
         return AuthResponse.builder()
                 .token(token)
+                .refreshToken(refreshToken)
+                .expiresIn(jwtUtil.getExpirationSeconds())
                 .user(UserDTO.from(user))
                 .isNewUser(isNewUser)
                 .build();
     }
 
+    /**
+     * Đổi refresh token lấy access token mới (rotation)
+     */
+    public AuthResponse refresh(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+
+        User user = userRepository.findById(rotation.userId())
+                .orElseThrow(() -> new UnauthorizedException("User not found"));
+
+        return AuthResponse.builder()
+                .token(jwtUtil.generateToken(user))
+                .refreshToken(rotation.refreshToken())
+                .expiresIn(jwtUtil.getExpirationSeconds())
+                .user(UserDTO.from(user))
+                .isNewUser(false)
+                .build();
+    }
+
+    /**
+     * Logout thiết bị hiện tại: revoke access token + refresh token
+     */
+    public void logout(String accessToken, String refreshToken, User user) {
+        Claims claims = jwtUtil.parseValidClaims(accessToken);
+        if (claims != null) {
+            tokenRevocationService.revoke(
+                    claims.getId(),
+                    user.getId(),
+                    LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault()));
+        }
+
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            refreshTokenService.revoke(refreshToken);
+        }
+
+        log.info("👋 User logged out: {}", user.getPhone());
+    }
+
+    /**
+     * Logout mọi thiết bị: revoke tất cả refresh tokens
+     * (access tokens còn lại tự hết hạn sau jwt.expiration)
+     */
+    public void logoutAll(String accessToken, User user) {
+        logout(accessToken, null, user);
+        refreshTokenService.revokeAll(user.getId());
+    }
+
     /**
      * Resend OTP
      */
@@ -2,7 +2,9 @@ package com.helpme.backend.service;
 
 import com.helpme.backend.dto.OrderDTO;
 import com.helpme.backend.entity.Order;
+import com.helpme.backend.entity.OrderStatus;
 import com.helpme.backend.entity.Provider;
+import com.helpme.backend.event.OrderStatusChangedEvent;
 import com.helpme.backend.repository.ProviderRepository;
 import com.helpme.backend.websocket.SocketIOService;
 import lombok.RequiredArgsConstructor;
@@ -10,10 +12,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.locationtech.jts.geom.Point;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,12 +28,24 @@ import java.util.stream.Collectors;
 @Slf4j
 public class BroadcastService {
 
+    private static final long NOTIFIED_TTL_MS = 24 * 60 * 60 * 1000L;
+    private static final int MAX_TRACKED_ORDERS = 10000;
+
     private final ProviderRepository providerRepository;
     private final SocketIOService socketIOService;
     private final LocationService locationService;  // ✅ Use interface, not RedisLocationService
     private final NotificationService notificationService;
     private final boolean redisEnabled;
 
+    // Map: orderId -> providers đã nhận "new_order_nearby" (UUID lưu dạng long[] cho gọn)
+    private final Map<UUID, NotifiedProviders> notifiedProviders = new ConcurrentHashMap<>();
+
+    private record NotifiedProviders(long[] providerIds, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
     // ✅ Constructor with optional LocationService
     public BroadcastService(
         SocketIOService socketIOService,
@@ -82,6 +101,8 @@ public class BroadcastService {
                 }
             }
 
+            rememberNotified(order.getId(), nearbyProviderIds);
+
             log.info("✅ Broadcast complete: Notified {} providers about order {}",
                     nearbyProviderIds.size(), order.getId());
 
@@ -90,6 +111,77 @@ public class BroadcastService {
         }
     }
 
+    /**
+     * Order rời BROADCASTING (matched/cancelled): báo "order_unavailable" cho các providers
+     * đã nhận order này (trừ provider được chọn), để họ không gửi quote vô ích
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.from() != OrderStatus.BROADCASTING) {
+            return;
+        }
+
+        NotifiedProviders notified = notifiedProviders.remove(event.orderId());
+        if (notified == null) {
+            return;
+        }
+
+        Map<String, Object> payload = Map.of(
+                "orderId", event.orderId(),
+                "status", event.to());
+
+        int retracted = 0;
+        long[] ids = notified.providerIds();
+        for (int i = 0; i < ids.length; i += 2) {
+            UUID providerId = new UUID(ids[i], ids[i + 1]);
+            if (providerId.equals(event.providerId())) {
+                continue;
+            }
+
+            try {
+                socketIOService.emitToUser(providerId, "order_unavailable", payload);
+                retracted++;
+            } catch (Exception e) {
+                log.warn("⚠️ Failed to retract order {} from provider {}: {}",
+                        event.orderId(), providerId, e.getMessage());
+            }
+        }
+
+        log.info("📤 Order {} is {}: retracted from {} providers", event.orderId(), event.to(), retracted);
+    }
+
+    /**
+     * Dọn các orders đã quá hạn theo dõi (BROADCASTING quá lâu không ai nhận)
+     */
+    @Scheduled(fixedRate = 600000) // 10 minutes
+    public void purgeExpiredNotified() {
+        notifiedProviders.entrySet().removeIf(entry -> entry.getValue().isExpired());
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private void rememberNotified(UUID orderId, List<UUID> providerIds) {
+        if (providerIds.isEmpty()) {
+            return;
+        }
+
+        if (notifiedProviders.size() >= MAX_TRACKED_ORDERS) {
+            purgeExpiredNotified();
+            if (notifiedProviders.size() >= MAX_TRACKED_ORDERS) {
+                log.warn("⚠️ Too many tracked broadcasts, skip tracking order {}", orderId);
+                return;
+            }
+        }
+
+        long[] ids = new long[providerIds.size() * 2];
+        for (int i = 0; i < providerIds.size(); i++) {
+            ids[i * 2] = providerIds.get(i).getMostSignificantBits();
+            ids[i * 2 + 1] = providerIds.get(i).getLeastSignificantBits();
+        }
+
+        notifiedProviders.put(orderId, new NotifiedProviders(ids, System.currentTimeMillis() + NOTIFIED_TTL_MS));
+    }
+
     /**
      * Fallback: Find nearby providers from database
      */
@@ -0,0 +1,373 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.dto.OrderDTO;
+import com.helpme.backend.entity.Order;
+import com.helpme.backend.entity.OrderStatus;
+import com.helpme.backend.event.OrderCreatedEvent;
+import com.helpme.backend.event.OrderStatusChangedEvent;
+import com.helpme.backend.exception.BadRequestException;
+import com.helpme.backend.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Index trong memory của các orders đang BROADCASTING, chia theo ô lưới lat/lng.
+ * Provider tìm orders gần đây đọc từ memory thay vì query PostGIS mỗi lần poll.
+ *
+ * Được cập nhật bởi event tạo order / rời BROADCASTING, và đối soát định kỳ với DB
+ * (bắt các orders tạo ở instance khác hoặc bị lỡ event).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BroadcastingOrderIndex {
+
+    private static final double CELL_DEGREES = 0.05; // ~5.5km theo vĩ độ
+    private static final double METERS_PER_DEGREE = 111_320;
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+
+    private final OrderRepository orderRepository;
+
+    private static final int MAX_CHANGES = 10000;
+    private static final String CURSOR_SEPARATOR = ":";
+
+    private final Map<UUID, BroadcastingOrder> orders = new ConcurrentHashMap<>();
+    private final Map<Long, Set<UUID>> cells = new ConcurrentHashMap<>();
+
+    // Tombstone: orderId -> thời điểm nhận event rời BROADCASTING.
+    // Reconcile không thêm lại order bị bỏ sau khi snapshot DB của nó bắt đầu
+    private final Map<UUID, Long> removedAt = new ConcurrentHashMap<>();
+    private final Object reconcileLock = new Object();
+
+    // Log thay đổi (thêm/bỏ) có sequence tăng dần, dùng cho delta feed.
+    // Sequence chỉ có nghĩa trong 1 JVM (bắt đầu lại từ 0 sau restart, mỗi node đánh số riêng)
+    // → cursor gửi cho client kèm epoch của instance, epoch khác thì client phải reset
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+    private final Deque<Change> changes = new ArrayDeque<>();
+    private final List<Consumer<Change>> changeListeners = new CopyOnWriteArrayList<>();
+    private long sequence;
+
+    /**
+     * Snapshot bất biến của order đang BROADCASTING
+     */
+    public record BroadcastingOrder(
+            UUID id,
+            UUID driverId,
+            String serviceType,
+            String description,
+            List<String> mediaUrls,
+            Integer broadcastRadius,
+            double lat,
+            double lng,
+            LocalDateTime createdAt,
+            long indexedAt) {
+
+        public OrderDTO toDTO(Double distanceMeters) {
+            OrderDTO dto = new OrderDTO();
+            dto.setId(id);
+            dto.setStatus(OrderStatus.BROADCASTING);
+            dto.setServiceType(serviceType);
+            dto.setDescription(description);
+            dto.setPickupLat(lat);
+            dto.setPickupLng(lng);
+            dto.setMediaUrls(mediaUrls);
+            dto.setCreatedAt(createdAt);
+            dto.setDistanceMeters(distanceMeters != null ? Math.round(distanceMeters * 10) / 10.0 : null);
+            return dto;
+        }
+
+        public double distanceTo(double fromLat, double fromLng) {
+            return distanceMeters(fromLat, fromLng, lat, lng);
+        }
+    }
+
+    public record NearbyOrder(BroadcastingOrder order, double distanceMeters) {
+    }
+
+    /**
+     * 1 thay đổi của index: order được thêm (added = true) hoặc bị bỏ
+     */
+    public record Change(long sequence, boolean added, BroadcastingOrder order) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        reconcile();
+        log.info("📍 Broadcasting order index rebuilt with {} orders", orders.size());
+    }
+
+    /**
+     * Đối soát với DB mỗi 30 giây: thêm orders còn thiếu, bỏ orders không còn BROADCASTING
+     */
+    @Scheduled(fixedDelay = 30000, initialDelay = 30000)
+    public void reconcile() {
+        synchronized (reconcileLock) {
+            long startedAt = System.currentTimeMillis();
+
+            try {
+                List<Order> broadcasting = orderRepository.findByStatusIn(EnumSet.of(OrderStatus.BROADCASTING));
+                Set<UUID> liveIds = new HashSet<>();
+
+                for (Order order : broadcasting) {
+                    liveIds.add(order.getId());
+                    // Bỏ qua order đã rời BROADCASTING sau khi query bắt đầu (snapshot đã cũ)
+                    if (!orders.containsKey(order.getId()) && !removedSince(order.getId(), startedAt)) {
+                        add(order);
+                    }
+                }
+
+                // Chỉ bỏ orders được index trước khi bắt đầu query (tránh xóa order vừa tạo)
+                orders.values().stream()
+                        .filter(entry -> !liveIds.contains(entry.id()) && entry.indexedAt() < startedAt)
+                        .map(BroadcastingOrder::id)
+                        .toList()
+                        .forEach(this::remove);
+            } catch (Exception e) {
+                log.warn("⚠️ Failed to reconcile broadcasting order index: {}", e.getMessage());
+            } finally {
+                // Tombstone trước startedAt không còn cần: reconcile sau đọc DB sau commit của chúng
+                removedAt.values().removeIf(removedTime -> removedTime < startedAt);
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        if (event.order().getStatus() == OrderStatus.BROADCASTING) {
+            add(event.order());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.from() == OrderStatus.BROADCASTING) {
+            removedAt.put(event.orderId(), System.currentTimeMillis());
+            remove(event.orderId());
+        }
+    }
+
+    /**
+     * Tìm orders trong bán kính, sắp xếp theo khoảng cách tăng dần
+     *
+     * @param since Chỉ lấy orders tạo sau thời điểm này (null = không giới hạn)
+     */
+    public List<NearbyOrder> findNearby(double lat, double lng, int radiusMeters,
+            LocalDateTime since, int limit) {
+        double latDelta = radiusMeters / METERS_PER_DEGREE;
+        double lngDelta = radiusMeters / (METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(lat)), 0.01));
+
+        long minX = cellIndex(lng - lngDelta);
+        long maxX = cellIndex(lng + lngDelta);
+        long minY = cellIndex(lat - latDelta);
+        long maxY = cellIndex(lat + latDelta);
+
+        List<NearbyOrder> result = new ArrayList<>();
+        for (long x = minX; x <= maxX; x++) {
+            for (long y = minY; y <= maxY; y++) {
+                Set<UUID> ids = cells.get(cellKey(x, y));
+                if (ids == null) {
+                    continue;
+                }
+
+                for (UUID id : ids) {
+                    BroadcastingOrder order = orders.get(id);
+                    if (order == null || (since != null && order.createdAt() != null
+                            && order.createdAt().isBefore(since))) {
+                        continue;
+                    }
+
+                    double distance = order.distanceTo(lat, lng);
+                    if (distance <= radiusMeters) {
+                        result.add(new NearbyOrder(order, distance));
+                    }
+                }
+            }
+        }
+
+        return result.stream()
+                .sorted(Comparator.comparingDouble(NearbyOrder::distanceMeters))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Sequence của thay đổi mới nhất (cursor cho delta feed)
+     */
+    public synchronized long currentSequence() {
+        return sequence;
+    }
+
+    /**
+     * Cursor của thay đổi mới nhất: "<epoch>:<sequence>"
+     */
+    public synchronized String currentCursor() {
+        return cursorOf(sequence);
+    }
+
+    /**
+     * Cursor của 1 thay đổi (gửi kèm event realtime)
+     */
+    public String cursorOf(long changeSequence) {
+        return epoch + CURSOR_SEPARATOR + changeSequence;
+    }
+
+    /**
+     * Các thay đổi kể từ cursor do client gửi lại
+     *
+     * @return Optional.empty() nếu cursor của instance khác / trước restart hoặc quá cũ,
+     *         client cần lấy lại toàn bộ
+     */
+    public Optional<List<Change>> changesSince(String cursor) {
+        int separator = cursor.lastIndexOf(CURSOR_SEPARATOR);
+        if (separator < 0 || !epoch.equals(cursor.substring(0, separator))) {
+            return Optional.empty();
+        }
+
+        try {
+            return changesSince(Long.parseLong(cursor.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Các thay đổi có sequence > cursor
+     *
+     * @return Optional.empty() nếu cursor quá cũ (log đã bị cắt), client cần lấy lại toàn bộ
+     */
+    public synchronized Optional<List<Change>> changesSince(long cursor) {
+        if (cursor > sequence) {
+            return Optional.empty();
+        }
+
+        Change oldest = changes.peekFirst();
+        if (oldest != null && oldest.sequence() > cursor + 1) {
+            return Optional.empty();
+        }
+
+        return Optional.of(changes.stream()
+                .filter(change -> change.sequence() > cursor)
+                .toList());
+    }
+
+    public void addChangeListener(Consumer<Change> listener) {
+        changeListeners.add(listener);
+    }
+
+    public boolean contains(UUID orderId) {
+        return orders.containsKey(orderId);
+    }
+
+    public int size() {
+        return orders.size();
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private boolean removedSince(UUID orderId, long since) {
+        Long removedTime = removedAt.get(orderId);
+        return removedTime != null && removedTime >= since;
+    }
+
+    private void add(Order order) {
+        if (order.getPickupLocation() == null) {
+            return;
+        }
+
+        BroadcastingOrder entry = new BroadcastingOrder(
+                order.getId(),
+                order.getDriverId(),
+                order.getServiceType(),
+                order.getDescription(),
+                order.getMediaUrls() != null ? List.copyOf(order.getMediaUrls()) : List.of(),
+                order.getBroadcastRadius(),
+                order.getPickupLocation().getY(),
+                order.getPickupLocation().getX(),
+                order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now(),
+                System.currentTimeMillis());
+
+        if (orders.put(entry.id(), entry) == null) {
+            recordChange(true, entry);
+        }
+        cells.compute(cellKey(entry.lat(), entry.lng()), (k, ids) -> {
+            Set<UUID> cell = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            cell.add(entry.id());
+            return cell;
+        });
+    }
+
+    private void remove(UUID orderId) {
+        BroadcastingOrder entry = orders.remove(orderId);
+        if (entry == null) {
+            return;
+        }
+
+        cells.computeIfPresent(cellKey(entry.lat(), entry.lng()), (k, ids) -> {
+            ids.remove(orderId);
+            return ids.isEmpty() ? null : ids;
+        });
+        recordChange(false, entry);
+    }
+
+    private void recordChange(boolean added, BroadcastingOrder entry) {
+        Change change;
+        synchronized (this) {
+            change = new Change(++sequence, added, entry);
+            changes.addLast(change);
+            if (changes.size() > MAX_CHANGES) {
+                changes.removeFirst();
+            }
+        }
+
+        for (Consumer<Change> listener : changeListeners) {
+            try {
+                listener.accept(change);
+            } catch (Exception e) {
+                log.warn("⚠️ Change listener failed for order {}: {}", entry.id(), e.getMessage());
+            }
+        }
+    }
+
+    private static long cellIndex(double degrees) {
+        return (long) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long cellKey(double lat, double lng) {
+        return cellKey(cellIndex(lng), cellIndex(lat));
+    }
+
+    private static long cellKey(long x, long y) {
+        return (x << 32) ^ (y & 0xffffffffL);
+    }
+
+    private static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                        * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(a));
+    }
+}
@@ -0,0 +1,48 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.repository.FileBlobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Metadata của content-addressed blobs
+ *
+ * Không đếm tham chiếu: order/add-on/avatar đổi ảnh không báo cho storage,
+ * nên việc xóa blob thuộc về OrphanFileCollector (kiểm tra tham chiếu thật
+ * trong DB). Row chỉ lưu lần upload gần nhất để GC không xóa blob vừa được
+ * upload lại mà chưa kịp gắn vào order/add-on/avatar.
+ *
+ * Chạy trong transaction riêng (REQUIRES_NEW) để commit ngay, trong lúc
+ * LocalStorageService còn giữ lock của blob.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileBlobService {
+
+    private final FileBlobRepository fileBlobRepository;
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void recordUpload(String hash, String path, long sizeBytes, String contentType) {
+        fileBlobRepository.recordUpload(hash, path, sizeBytes, contentType);
+    }
+
+    /**
+     * Xóa row của blob mà orphan GC xác định không còn được dùng ở đâu,
+     * nếu blob không được upload lại kể từ idleBefore
+     *
+     * @return true nếu caller được phép xóa file (row đã xóa hoặc không tồn tại)
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean forgetIfIdle(String hash, LocalDateTime idleBefore) {
+        if (fileBlobRepository.deleteIfIdle(hash, idleBefore) > 0) {
+            return true;
+        }
+        return !fileBlobRepository.existsById(hash);
+    }
+}
@@ -0,0 +1,287 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.exception.NotFoundException;
+import com.helpme.backend.util.ImageType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serve file ảnh đã upload
+ *
+ * - Metadata (content-type, size, ETag) được cache → không probe/stat mỗi request
+ * - ETag strong: SHA-256 với blob content-addressed, size+mtime với file khác
+ *   (file luôn được ghi bằng rename atomic và không bao giờ ghi đè)
+ * - Hỗ trợ If-None-Match (304), Range / If-Range (206, 416)
+ * - Body gửi bằng sendfile của Tomcat nếu connector hỗ trợ, ngược lại FileChannel.transferTo
+ */
+@Service
+@ConditionalOnProperty(name = "file.storage-type", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class FileServingService {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final long METADATA_TTL_MS = 60 * 1000; // 1 phút
+    private static final int MAX_METADATA_ENTRIES = 10000;
+
+    // Tên file là UUID hoặc SHA-256 → nội dung không bao giờ đổi
+    private static final String IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365))
+            .cachePublic().immutable().getHeaderValue();
+    // URL ?size= đang fallback về bản gốc → client phải revalidate để lấy variant sau
+    private static final String REVALIDATE = CacheControl.noCache().cachePublic().getHeaderValue();
+
+    private static final Pattern BLOB_NAME = Pattern.compile("([0-9a-f]{64})\\.[a-z]+");
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+    private static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    // Cache: relativePath -> metadata
+    private final Map<String, CacheEntry> metadataCache = new ConcurrentHashMap<>();
+
+    public record FileMetadata(Path path, String contentType, long size, long lastModified, String etag) {
+    }
+
+    private record CacheEntry(FileMetadata metadata, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    private record ByteRange(long start, long end) {
+    }
+
+    /**
+     * Ghi file ra response (hoặc 304/206/416 tùy header của request)
+     *
+     * @param file      Path trên disk (đã được LocalStorageService kiểm tra path traversal)
+     * @param immutable true nếu URL luôn trả cùng nội dung (cache 1 năm)
+     */
+    public void serve(String relativePath, Path file, boolean immutable,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        FileMetadata metadata = getMetadata(relativePath, file);
+
+        response.setHeader(HttpHeaders.ETAG, metadata.etag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? IMMUTABLE : REVALIDATE);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, metadata.lastModified());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), metadata.etag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = metadata.size() - 1;
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, metadata)) {
+            ByteRange range = parseRange(rangeHeader, metadata.size());
+            if (range == UNSATISFIABLE) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + metadata.size());
+                return;
+            }
+            if (range != null) {
+                start = range.start();
+                end = range.end();
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + end + "/" + metadata.size());
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentType(metadata.contentType());
+        response.setContentLengthLong(length);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "inline; filename=\"" + metadata.path().getFileName() + "\"");
+
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        // Zero-copy: Tomcat tự gửi file bằng sendfile sau khi handler return
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, metadata.path().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1); // exclusive
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(metadata.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        } catch (NoSuchFileException e) {
+            metadataCache.remove(relativePath);
+            throw new NotFoundException("Image not found: " + relativePath);
+        }
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private FileMetadata getMetadata(String relativePath, Path path) {
+        CacheEntry cached = metadataCache.get(relativePath);
+        if (cached != null && !cached.isExpired()) {
+            return cached.metadata();
+        }
+
+        FileMetadata metadata = loadMetadata(relativePath, path);
+
+        if (metadataCache.size() >= MAX_METADATA_ENTRIES) {
+            metadataCache.entrySet().removeIf(entry -> entry.getValue().isExpired());
+            if (metadataCache.size() >= MAX_METADATA_ENTRIES) {
+                metadataCache.clear();
+            }
+        }
+        metadataCache.put(relativePath,
+                new CacheEntry(metadata, System.currentTimeMillis() + METADATA_TTL_MS));
+        return metadata;
+    }
+
+    private FileMetadata loadMetadata(String relativePath, Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                throw new NotFoundException("Image not found: " + relativePath);
+            }
+
+            long size = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+
+            String filename = path.getFileName().toString();
+            Matcher blob = BLOB_NAME.matcher(filename);
+            String etag = blob.matches()
+                    ? "\"" + blob.group(1) + "\""
+                    : "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+
+            return new FileMetadata(path, contentTypeOf(path), size, lastModified, etag);
+
+        } catch (NoSuchFileException e) {
+            throw new NotFoundException("Image not found: " + relativePath);
+        } catch (IOException e) {
+            log.error("❌ Failed to read file metadata: {}", relativePath, e);
+            throw new RuntimeException("Failed to read image: " + relativePath, e);
+        }
+    }
+
+    private String contentTypeOf(Path path) throws IOException {
+        String filename = path.getFileName().toString();
+        int dot = filename.lastIndexOf('.');
+        ImageType type = dot >= 0 ? ImageType.fromExtension(filename.substring(dot)) : null;
+        if (type != null) {
+            return type.contentType();
+        }
+
+        // File upload trước khi có magic-byte validation có thể mang đuôi khác (.jpeg, .JPG...)
+        String probed = Files.probeContentType(path);
+        return probed != null ? probed : "application/octet-stream";
+    }
+
+    /**
+     * If-None-Match dùng weak comparison (bỏ qua tiền tố W/)
+     */
+    private boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-Range: chỉ trả range khi ETag (strong) hoặc Last-Modified còn khớp
+     */
+    private boolean ifRangeMatches(HttpServletRequest request, FileMetadata metadata) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(metadata.etag());
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == metadata.lastModified() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parse 1 byte range ("bytes=a-b", "bytes=a-", "bytes=-n")
+     *
+     * @return null nếu header không hợp lệ hoặc nhiều range (trả full 200),
+     *         UNSATISFIABLE nếu range nằm ngoài file
+     */
+    private ByteRange parseRange(String header, long size) {
+        Matcher matcher = RANGE.matcher(header.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+
+        String first = matcher.group(1);
+        String last = matcher.group(2);
+        try {
+            if (first.isEmpty()) {
+                if (last.isEmpty()) {
+                    return null;
+                }
+                long suffix = Long.parseLong(last);
+                if (suffix == 0 || size == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, size - suffix), size - 1);
+            }
+
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start >= size) {
+                return UNSATISFIABLE;
+            }
+            if (end < start) {
+                return null;
+            }
+            return new ByteRange(start, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.helpme.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Conditional GET (ETag / Last-Modified / 304) cho các endpoint bị poll nhiều.
+ *
+ * ETag tính từ version của resource (1 query nhẹ, xem ResourceVersions): nếu If-None-Match
+ * khớp thì trả 304 luôn, không chạy loader. Ngược lại load dữ liệu và trả kèm ETag/Last-Modified.
+ * Loader phải đọc cùng nguồn với version (DB), không đọc cache theo node: nếu không, node có
+ * cache cũ sẽ gắn ETag mới cho body cũ và client nhận 304 trên body cũ đó.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HttpCacheService {
+
+    /**
+     * Request attribute đánh dấu response cần đo (đọc bởi HttpCacheMetricsFilter)
+     */
+    public static final String SIZE_KEY_ATTRIBUTE = HttpCacheService.class.getName() + ".sizeKey";
+
+    private static final int MAX_SIZE_ENTRIES = 50000;
+
+    private final AtomicLong conditionalRequests = new AtomicLong();
+    private final AtomicLong notModifiedResponses = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    // Map: sizeKey -> kích thước body của response 200 gần nhất
+    private final Map<String, Long> lastBodySizes = new ConcurrentHashMap<>();
+
+    public <T> ResponseEntity<T> conditional(WebRequest request, String resourceKey, UUID viewerId,
+            CacheControl cacheControl, Supplier<String> versionOf, Supplier<T> loader) {
+        return conditional(request, resourceKey, viewerId, cacheControl, versionOf, loader, null);
+    }
+
+    /**
+     * @param viewerId       User đang xem (null cho resource public), đưa vào ETag để ETag
+     *                       của user này không dùng được cho user khác
+     * @param versionOf      Version hiện tại của resource (null nếu không tồn tại -> không có ETag)
+     * @param lastModifiedOf Lấy thời điểm cập nhật từ body (null nếu không có)
+     */
+    public <T> ResponseEntity<T> conditional(WebRequest request, String resourceKey, UUID viewerId,
+            CacheControl cacheControl, Supplier<String> versionOf, Supplier<T> loader,
+            Function<T, LocalDateTime> lastModifiedOf) {
+        // Đọc version TRƯỚC khi load, loader đọc thẳng DB (không qua cache theo node như
+        // ProviderCardCache): body không bao giờ cũ hơn version của ETag
+        String version = versionOf.get();
+        String etag = version != null ? etag(resourceKey, viewerId, version) : null;
+        request.setAttribute(SIZE_KEY_ATTRIBUTE, resourceKey + "|" + viewerId, RequestAttributes.SCOPE_REQUEST);
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (etag != null && ifNoneMatch != null && ifNoneMatch.contains(etag.substring(2))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        T body = loader.get();
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .cacheControl(cacheControl);
+        if (etag != null) {
+            builder.eTag(etag);
+        }
+
+        LocalDateTime lastModified = lastModifiedOf != null && body != null ? lastModifiedOf.apply(body) : null;
+        if (lastModified != null) {
+            // Spring tự trả 304 nếu If-Modified-Since khớp
+            builder.lastModified(lastModified.atZone(ZoneId.systemDefault()));
+        }
+
+        return builder.body(body);
+    }
+
+    /**
+     * Ghi nhận kết quả 1 conditional request (gọi bởi HttpCacheMetricsFilter)
+     */
+    public void recordResponse(String sizeKey, int status, long bodyBytes) {
+        conditionalRequests.incrementAndGet();
+
+        if (status == HttpStatus.NOT_MODIFIED.value()) {
+            notModifiedResponses.incrementAndGet();
+            bytesSaved.addAndGet(lastBodySizes.getOrDefault(sizeKey, 0L));
+        } else if (status == HttpStatus.OK.value() && bodyBytes > 0) {
+            if (lastBodySizes.size() >= MAX_SIZE_ENTRIES) {
+                lastBodySizes.clear();
+            }
+            lastBodySizes.put(sizeKey, bodyBytes);
+        }
+    }
+
+    /**
+     * Thống kê: tổng request, số 304, tỉ lệ 304, bytes tiết kiệm được
+     */
+    public Map<String, Object> getStats() {
+        long total = conditionalRequests.get();
+        long notModified = notModifiedResponses.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("conditional_requests", total);
+        stats.put("not_modified", notModified);
+        stats.put("not_modified_ratio", total > 0 ? Math.round(notModified * 1000.0 / total) / 1000.0 : 0.0);
+        stats.put("bytes_saved", bytesSaved.get());
+        return stats;
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private String etag(String resourceKey, UUID viewerId, String version) {
+        String raw = resourceKey + "|" + viewerId + "|" + version;
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(raw.getBytes(StandardCharsets.UTF_8));
+            return "W/\"" + HexFormat.of().formatHex(hash, 0, 12) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
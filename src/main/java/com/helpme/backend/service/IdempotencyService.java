@@ -0,0 +1,225 @@
+// service/IdempotencyService.java
+package com.helpme.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helpme.backend.exception.BadRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key cho các POST mà mobile hay retry (tạo order, gửi quote)
+ *
+ * - Replay cùng key -> trả lại response đã lưu, không chạy lại action
+ * - Request trùng key chạy song song -> chờ request đầu tiên xong
+ * - Request lỗi -> không lưu, lần retry sau sẽ chạy lại
+ *
+ * Lưu trong memory (bounded + TTL), dùng thêm Redis khi được enable
+ * để các node dùng chung kết quả.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final String PENDING = "__PENDING__";
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final int MAX_ENTRIES = 10_000;
+    private static final Duration RESPONSE_TTL = Duration.ofHours(1);
+    private static final Duration LOCK_TTL = Duration.ofSeconds(30);
+    private static final long WAIT_TIMEOUT_MS = 10_000;
+    private static final long REDIS_POLL_INTERVAL_MS = 100;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean redisEnabled;
+
+    private final Map<String, Entry> localEntries = new ConcurrentHashMap<>();
+
+    // ✅ Constructor with optional RedisTemplate
+    public IdempotencyService(
+            @Autowired(required = false) RedisTemplate<String, Object> redisTemplate,
+            ObjectMapper objectMapper,
+            @Value("${spring.data.redis.enabled:false}") boolean redisEnabled) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.redisEnabled = redisEnabled;
+
+        log.info("🔧 IdempotencyService initialized with Redis: {}", redisEnabled ? "ENABLED" : "DISABLED");
+    }
+
+    /**
+     * Chạy action đúng 1 lần cho mỗi (scope, userId, idempotencyKey)
+     *
+     * @param scope          Loại request (vd: "order.create")
+     * @param userId         User gửi request (key chỉ có nghĩa trong phạm vi user)
+     * @param idempotencyKey Header Idempotency-Key (null -> chạy bình thường)
+     */
+    public <T> T execute(String scope, UUID userId, String idempotencyKey,
+            Class<T> responseType, Supplier<T> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must not exceed " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String key = scope + ":" + userId + ":" + idempotencyKey;
+
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        long expiresAt = System.currentTimeMillis() + RESPONSE_TTL.toMillis();
+        Entry entry = localEntries.compute(key,
+                (k, current) -> current == null || current.isExpired() ? new Entry(mine, expiresAt) : current);
+
+        if (entry.future() != mine) {
+            log.info("🔁 Idempotent replay for {}", key);
+            return responseType.cast(await(entry.future()));
+        }
+
+        evictIfFull();
+
+        try {
+            T result = redisEnabled && redisTemplate != null
+                    ? executeWithRedis(key, responseType, action)
+                    : action.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            localEntries.remove(key, entry);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Chạy mỗi phút để dọn entries hết hạn
+     */
+    @Scheduled(fixedRate = 60000)
+    public void purgeExpired() {
+        localEntries.values().removeIf(Entry::isExpired);
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private <T> T executeWithRedis(String key, Class<T> responseType, Supplier<T> action) {
+        String redisKey = KEY_PREFIX + key;
+        boolean acquired;
+
+        try {
+            Object cached = redisTemplate.opsForValue().get(redisKey);
+            if (cached != null && !PENDING.equals(cached)) {
+                log.info("🔁 Redis: Idempotent replay for {}", key);
+                return objectMapper.readValue((String) cached, responseType);
+            }
+
+            acquired = Boolean.TRUE.equals(
+                    redisTemplate.opsForValue().setIfAbsent(redisKey, PENDING, LOCK_TTL));
+        } catch (Exception e) {
+            log.error("❌ Redis: Idempotency lookup failed for {}: {}", key, e.getMessage());
+            log.warn("⚠️ Falling back to in-memory idempotency");
+            return action.get();
+        }
+
+        if (!acquired) {
+            // Node khác đang xử lý cùng key
+            return waitForRedisResult(redisKey, responseType);
+        }
+
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            deleteQuietly(redisKey);
+            throw e;
+        }
+
+        try {
+            redisTemplate.opsForValue().set(redisKey, objectMapper.writeValueAsString(result), RESPONSE_TTL);
+        } catch (Exception e) {
+            log.error("❌ Redis: Failed to store idempotent response for {}: {}", key, e.getMessage());
+            deleteQuietly(redisKey);
+        }
+
+        return result;
+    }
+
+    private <T> T waitForRedisResult(String redisKey, Class<T> responseType) {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MS;
+
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                Thread.sleep(REDIS_POLL_INTERVAL_MS);
+
+                Object cached = redisTemplate.opsForValue().get(redisKey);
+                if (cached == null) {
+                    // Request đầu tiên lỗi -> client cần retry
+                    throw new BadRequestException("Original request failed, please retry");
+                }
+                if (!PENDING.equals(cached)) {
+                    return objectMapper.readValue((String) cached, responseType);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read idempotent response", e);
+        }
+
+        throw new BadRequestException("A request with this Idempotency-Key is still being processed");
+    }
+
+    private Object await(CompletableFuture<Object> future) {
+        try {
+            return future.get(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new BadRequestException("A request with this Idempotency-Key is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void evictIfFull() {
+        if (localEntries.size() > MAX_ENTRIES) {
+            purgeExpired();
+            if (localEntries.size() > MAX_ENTRIES) {
+                // Chỉ bỏ các entry đã xong, không đụng request đang chạy
+                localEntries.values().removeIf(entry -> entry.future().isDone());
+            }
+        }
+    }
+
+    private void deleteQuietly(String redisKey) {
+        try {
+            redisTemplate.delete(redisKey);
+        } catch (Exception e) {
+            log.warn("⚠️ Redis: Failed to delete {}: {}", redisKey, e.getMessage());
+        }
+    }
+
+    private record Entry(CompletableFuture<Object> future, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
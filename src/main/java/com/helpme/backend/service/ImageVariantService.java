@@ -0,0 +1,426 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.exception.BadRequestException;
+import com.helpme.backend.util.ImageType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sinh các bản resize (thumb/small/medium) cho ảnh đã upload
+ *
+ * Chạy nền trên pool riêng sau khi upload xong. Ảnh được decode, xoay theo
+ * EXIF orientation, resize và encode lại thành JPEG không kèm metadata
+ * (EXIF/GPS bị loại bỏ). Variant lưu cạnh file gốc: orders/abc.png → orders/abc_thumb.jpg
+ */
+@Service
+@ConditionalOnProperty(name = "file.storage-type", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class ImageVariantService {
+
+    /**
+     * Các kích thước được hỗ trợ (cạnh dài nhất, pixel)
+     */
+    public enum Variant {
+        THUMB(160),
+        SMALL(480),
+        MEDIUM(1080);
+
+        private final int maxEdge;
+
+        Variant(int maxEdge) {
+            this.maxEdge = maxEdge;
+        }
+
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        public static Variant fromKey(String key) {
+            for (Variant variant : values()) {
+                if (variant.key().equalsIgnoreCase(key)) {
+                    return variant;
+                }
+            }
+            throw new BadRequestException("Unsupported image size: " + key);
+        }
+    }
+
+    // ImageIO mặc định chỉ decode được các loại này (WEBP/HEIC luôn serve bản gốc)
+    private static final Set<ImageType> DECODABLE = Set.of(ImageType.JPEG, ImageType.PNG, ImageType.GIF);
+
+    private static final String VARIANT_EXTENSION = ".jpg";
+    private static final float JPEG_QUALITY = 0.82f;
+    private static final long MAX_SOURCE_PIXELS = 100_000_000L;
+    private static final int QUEUE_CAPACITY = 500;
+
+    private final Path root;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ImageVariantService(
+            @Value("${file.upload-dir}") String uploadDir,
+            @Value("${file.variants.threads:2}") int threads) {
+        this.root = Paths.get(uploadDir).toAbsolutePath().normalize();
+
+        AtomicInteger counter = new AtomicInteger();
+        // Decode 1 ảnh 12MP tốn ~50MB heap → giới hạn số thread, queue bounded
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                r -> {
+                    Thread thread = new Thread(r, "image-variant-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Đưa ảnh vừa upload vào hàng đợi sinh variants
+     * Queue đầy → bỏ qua, variant sẽ được sinh lại khi có request đầu tiên
+     */
+    public void generateAsync(String originalPath, ImageType type) {
+        if (!DECODABLE.contains(type) || !inFlight.add(originalPath)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(originalPath);
+                } catch (Exception e) {
+                    log.warn("⚠️ Failed to generate variants for {}: {}", originalPath, e.getMessage());
+                } finally {
+                    inFlight.remove(originalPath);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(originalPath);
+            log.warn("⚠️ Variant queue full, skipped {}", originalPath);
+        }
+    }
+
+    /**
+     * Path của variant nếu đã sinh xong, ngược lại trả về path gốc
+     * (và enqueue sinh variant cho ảnh upload trước khi có pipeline này)
+     */
+    public String resolve(String originalPath, Variant variant) {
+        if (isVariant(originalPath)) {
+            return originalPath;
+        }
+
+        String variantPath = variantPath(originalPath, variant);
+        if (Files.exists(root.resolve(variantPath))) {
+            return variantPath;
+        }
+
+        ImageType type = typeOf(originalPath);
+        if (type != null) {
+            generateAsync(originalPath, type);
+        }
+        return originalPath;
+    }
+
+    /**
+     * Xóa mọi variant của 1 ảnh gốc
+     */
+    public void deleteVariants(String originalPath) {
+        for (Variant variant : Variant.values()) {
+            try {
+                Files.deleteIfExists(root.resolve(variantPath(originalPath, variant)));
+            } catch (IOException e) {
+                log.warn("⚠️ Could not delete variant {} of {}", variant.key(), originalPath, e);
+            }
+        }
+    }
+
+    public static boolean isVariant(String path) {
+        for (Variant variant : Variant.values()) {
+            if (path.endsWith("_" + variant.key() + VARIANT_EXTENSION)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static String variantPath(String originalPath, Variant variant) {
+        int slash = originalPath.lastIndexOf('/');
+        int dot = originalPath.lastIndexOf('.');
+        String base = dot > slash ? originalPath.substring(0, dot) : originalPath;
+        return base + "_" + variant.key() + VARIANT_EXTENSION;
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private void generate(String originalPath) throws IOException {
+        Path source = root.resolve(originalPath);
+        if (!Files.exists(source)) {
+            return;
+        }
+
+        long started = System.nanoTime();
+
+        BufferedImage image = decode(source);
+        if (image == null) {
+            return;
+        }
+        image = applyOrientation(image, readExifOrientation(source));
+
+        // Sinh từ lớn → nhỏ, variant trước làm nguồn cho variant sau (đỡ decode/scale lại từ đầu)
+        Variant[] variants = Variant.values();
+        for (int i = variants.length - 1; i >= 0; i--) {
+            image = scaleToFit(image, variants[i].maxEdge);
+            writeJpeg(image, root.resolve(variantPath(originalPath, variants[i])));
+        }
+
+        log.debug("🖼️ Generated variants for {} in {}ms",
+                originalPath, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Decode với subsampling: chỉ đọc đủ điểm ảnh để cạnh dài vẫn ≥ variant lớn nhất
+     */
+    private BufferedImage decode(Path source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                if ((long) width * height > MAX_SOURCE_PIXELS) {
+                    log.warn("⚠️ Image too large for variants: {} ({}x{})", source.getFileName(), width, height);
+                    return null;
+                }
+
+                int subsampling = subsamplingFactor(width, height);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Hệ số subsampling lớn nhất mà cạnh dài sau khi đọc vẫn ≥ MEDIUM.maxEdge
+     * (ảnh 4032x3024 → 3, đọc 1344x1008 thay vì cả 12MP)
+     */
+    static int subsamplingFactor(int width, int height) {
+        return Math.max(1, Math.max(width, height) / Variant.MEDIUM.maxEdge);
+    }
+
+    /**
+     * Thu nhỏ về cạnh dài maxEdge (không phóng to), giảm từng nửa để tránh răng cưa
+     */
+    private BufferedImage scaleToFit(BufferedImage image, int maxEdge) {
+        int longest = Math.max(image.getWidth(), image.getHeight());
+        if (longest <= maxEdge) {
+            return toRgb(image, image.getWidth(), image.getHeight());
+        }
+
+        double ratio = (double) maxEdge / longest;
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = toRgb(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        return toRgb(current, targetWidth, targetHeight);
+    }
+
+    /**
+     * Vẽ lại ảnh sang TYPE_INT_RGB (nền trắng cho ảnh trong suốt) ở kích thước mới
+     */
+    private BufferedImage toRgb(BufferedImage image, int width, int height) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB
+                && image.getWidth() == width && image.getHeight() == height) {
+            return image;
+        }
+
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = result.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return result;
+    }
+
+    /**
+     * Encode JPEG không metadata, ghi file tạm rồi rename atomic
+     */
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Path temp = target.resolveSibling(".variant-" + UUID.randomUUID() + ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            writer.dispose();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Xoay ảnh theo EXIF orientation (3 = 180°, 6 = 90° CW, 8 = 90° CCW)
+     * vì metadata bị loại bỏ khi encode lại
+     */
+    private BufferedImage applyOrientation(BufferedImage image, int orientation) {
+        if (orientation != 3 && orientation != 6 && orientation != 8) {
+            return image;
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swap = orientation != 3;
+
+        BufferedImage result = new BufferedImage(
+                swap ? height : width, swap ? width : height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = result.createGraphics();
+        try {
+            switch (orientation) {
+                case 3 -> {
+                    g.translate(width, height);
+                    g.rotate(Math.PI);
+                }
+                case 6 -> {
+                    g.translate(height, 0);
+                    g.rotate(Math.PI / 2);
+                }
+                default -> {
+                    g.translate(0, width);
+                    g.rotate(-Math.PI / 2);
+                }
+            }
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return result;
+    }
+
+    /**
+     * Đọc tag Orientation (0x0112) trong segment APP1 Exif của JPEG, mặc định 1
+     */
+    private int readExifOrientation(Path source) {
+        try (InputStream in = Files.newInputStream(source);
+                DataInputStream data = new DataInputStream(in)) {
+            if (data.readUnsignedShort() != 0xFFD8) {
+                return 1;
+            }
+
+            while (true) {
+                int marker = data.readUnsignedShort();
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA) {
+                    return 1;
+                }
+
+                int length = data.readUnsignedShort() - 2;
+                if (marker == 0xFFE1) {
+                    int orientation = parseOrientation(data.readNBytes(length));
+                    if (orientation > 0) {
+                        return orientation;
+                    }
+                } else {
+                    data.skipNBytes(length);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * @return orientation, 0 nếu segment không phải Exif
+     */
+    private int parseOrientation(byte[] segment) {
+        if (segment.length < 14 || segment[0] != 'E' || segment[1] != 'x'
+                || segment[2] != 'i' || segment[3] != 'f') {
+            return 0;
+        }
+
+        ByteBuffer tiff = ByteBuffer.wrap(segment, 6, segment.length - 6).slice();
+        tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+
+        int ifd = tiff.getInt(4);
+        int entries = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if ((tiff.getShort(entry) & 0xFFFF) == 0x0112) {
+                return tiff.getShort(entry + 8) & 0xFFFF;
+            }
+        }
+        return 1;
+    }
+
+    private ImageType typeOf(String path) {
+        String lower = path.toLowerCase(Locale.ROOT);
+        for (ImageType type : DECODABLE) {
+            if (lower.endsWith(type.extension())) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
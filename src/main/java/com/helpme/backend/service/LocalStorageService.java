@@ -1,102 +1,161 @@
 package com.helpme.backend.service;
 
+import com.helpme.backend.dto.PresignedUploadResponse;
+import com.helpme.backend.exception.BadRequestException;
+import com.helpme.backend.service.ImageVariantService.Variant;
+import com.helpme.backend.util.ImageType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.List;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
+@ConditionalOnProperty(name = "file.storage-type", havingValue = "local", matchIfMissing = true)
+@RequiredArgsConstructor
 @Slf4j
-public class LocalStorageService {
+public class LocalStorageService implements StorageService {
+
+    // Mỗi lần transferFrom chỉ copy tối đa 256KB → heap dùng cho 1 upload cố định
+    private static final long TRANSFER_CHUNK_BYTES = 256 * 1024;
+    private static final String TEMP_PREFIX = ".upload-";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Pattern FOLDER_PATTERN = Pattern.compile("[A-Za-z0-9_-]+(/[A-Za-z0-9_-]+)*");
+
+    private static final String BLOB_FOLDER = "blobs";
+    // blobs/ab/cd/abcd...(64 hex).jpg (bản flat blobs/<hash>.jpg vẫn được nhận)
+    private static final Pattern BLOB_PATTERN = Pattern.compile(
+            BLOB_FOLDER + "/(?:[0-9a-f]{2}/[0-9a-f]{2}/)?([0-9a-f]{64})\\.[a-z]+");
+    private static final int BLOB_LOCK_STRIPES = 64;
+
+    private final ImageVariantService imageVariantService;
+    private final FileBlobService fileBlobService;
+    private final FileServingService fileServingService;
+    // ReentrantLock thay vì synchronized: không pin carrier thread khi chạy trên virtual thread
+    private final Lock[] blobLocks = newLocks(BLOB_LOCK_STRIPES);
 
     @Value("${file.upload-dir}")
     private String uploadDir;
 
+    @Value("${file.content-addressed:false}")
+    private boolean contentAddressed;
+
+    @Override
+    public StoredImage store(MultipartFile file, String folder) {
+        if (file.isEmpty()) {
+            throw new BadRequestException("File is empty");
+        }
+        if (file.getSize() > MAX_IMAGE_BYTES) {
+            throw new BadRequestException("File size must be less than 10MB");
+        }
+
+        try (InputStream in = file.getInputStream()) {
+            return saveImage(in, folder);
+        } catch (IOException e) {
+            log.error("❌ Failed to save image", e);
+            throw new RuntimeException("Failed to save image: " + e.getMessage(), e);
+        }
+    }
+
     /**
-     * Lưu 1 file ảnh
-     * 
-     * @param file   MultipartFile từ request
-     * @param folder Subfolder (vd: "orders", "addons")
-     * @return Relative path (vd: "orders/abc-123.jpg")
+     * Lưu ảnh từ stream (vd: body của request upload raw)
+     *
+     * Loại ảnh được xác định bằng magic bytes của block đầu tiên, giới hạn
+     * dung lượng được kiểm tra trong lúc stream. Dữ liệu ghi vào file tạm
+     * cùng thư mục rồi rename atomic → không bao giờ lộ ra file dở dang.
+     *
+     * Ở chế độ content-addressed, file được đặt tên theo SHA-256 (tính trong
+     * lúc stream) trong thư mục blobs/, folder chỉ dùng cho chế độ UUID.
      */
-    public String saveImage(MultipartFile file, String folder) {
+    @Override
+    public StoredImage saveImage(InputStream in, String folder) {
+        long started = System.nanoTime();
+        Path folderPath = resolveFolder(folder);
+        Path tempFolder = contentAddressed ? resolvePath(BLOB_FOLDER) : folderPath;
+        Path temp = tempFolder.resolve(TEMP_PREFIX + UUID.randomUUID() + TEMP_SUFFIX);
+
         try {
-            // Validate file
-            if (file.isEmpty()) {
-                throw new IllegalArgumentException("File is empty");
-            }
+            Files.createDirectories(tempFolder);
 
-            // Validate image type
-            String contentType = file.getContentType();
-            if (contentType == null || !contentType.startsWith("image/")) {
-                throw new IllegalArgumentException("File must be an image");
-            }
+            MessageDigest digest = newSha256();
+            ImageType type;
+            long size;
+            try (ReadableByteChannel source = Channels.newChannel(new DigestInputStream(in, digest));
+                    FileChannel target = FileChannel.open(temp,
+                            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
 
-            // Validate file size (max 10MB)
-            if (file.getSize() > 10 * 1024 * 1024) {
-                throw new IllegalArgumentException("File size must be less than 10MB");
-            }
+                ByteBuffer header = ByteBuffer.allocate(ImageType.HEADER_BYTES);
+                while (header.hasRemaining() && source.read(header) >= 0) {
+                    // Đọc đủ header (hoặc tới EOF nếu file nhỏ hơn)
+                }
+                header.flip();
 
-            // Create folder if not exists
-            Path folderPath = Paths.get(uploadDir, folder);
-            if (!Files.exists(folderPath)) {
-                Files.createDirectories(folderPath);
-            }
+                if (!header.hasRemaining()) {
+                    throw new BadRequestException("File is empty");
+                }
 
-            // Generate unique filename
-            String originalFilename = file.getOriginalFilename();
-            String extension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            } else {
-                extension = ".jpg";
-            }
+                type = ImageType.detect(header);
+                if (type == null) {
+                    throw new BadRequestException("File must be a JPEG, PNG, GIF, WEBP or HEIC image");
+                }
 
-            String filename = UUID.randomUUID().toString() + extension;
+                size = target.write(header);
+                size += transferLimited(source, target, size);
+            }
 
-            // Save file
-            Path filePath = folderPath.resolve(filename);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            String relativePath = contentAddressed
+                    ? commitBlob(temp, HexFormat.of().formatHex(digest.digest()), type, size)
+                    : commitUnique(temp, folder, type);
 
-            // Return relative path
-            String relativePath = folder + "/" + filename;
-            log.info("✅ Saved image: {}", relativePath);
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            log.info("✅ Saved image: {} ({} bytes, {}, {}ms)", relativePath, size, type, durationMs);
 
-            return relativePath;
+            return new StoredImage(relativePath, type, size, durationMs);
 
         } catch (IOException e) {
             log.error("❌ Failed to save image", e);
             throw new RuntimeException("Failed to save image: " + e.getMessage(), e);
+        } finally {
+            deleteQuietly(temp);
         }
     }
 
-    /**
-     * Lưu nhiều files
-     */
-    public List<String> saveMultipleImages(List<MultipartFile> files, String folder) {
-        return files.stream()
-                .map(file -> saveImage(file, folder))
-                .collect(Collectors.toList());
-    }
-
     /**
      * Load file để serve qua HTTP
      */
     public Resource loadImage(String relativePath) {
         try {
-            Path filePath = Paths.get(uploadDir).resolve(relativePath).normalize();
+            Path filePath = resolvePath(relativePath);
             Resource resource = new UrlResource(filePath.toUri());
 
             if (resource.exists() && resource.isReadable()) {
@@ -110,23 +169,224 @@ public class LocalStorageService {
     }
 
     /**
-     * Xóa file
+     * Serve file từ disk (variant chưa sinh xong thì serve bản gốc)
      */
+    @Override
+    public void serveImage(String relativePath, Variant variant,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        resolvePath(relativePath);
+        String resolved = variant != null ? imageVariantService.resolve(relativePath, variant) : relativePath;
+
+        // Đang fallback về bản gốc thì URL ?size= chưa bất biến
+        boolean immutable = variant == null || !resolved.equals(relativePath);
+        fileServingService.serve(resolved, resolvePath(resolved), immutable, request, response);
+    }
+
+    /**
+     * Local storage không có presigned URL, client dùng /v1/files/upload-stream
+     */
+    @Override
+    public PresignedUploadResponse presignUpload(String folder, String contentType, long size) {
+        throw new BadRequestException("Presigned uploads require S3 storage, use /v1/files/upload-stream");
+    }
+
+    /**
+     * Xóa file (kèm các variant đã resize)
+     * Blob content-addressed có thể đang được upload khác dùng chung → để OrphanFileCollector xóa
+     */
+    @Override
     public void deleteImage(String relativePath) {
         try {
-            Path filePath = Paths.get(uploadDir).resolve(relativePath).normalize();
+            Path filePath = resolvePath(relativePath);
+
+            if (BLOB_PATTERN.matcher(relativePath).matches()) {
+                log.debug("🔗 Blob left to orphan GC: {}", relativePath);
+                return;
+            }
+
             Files.deleteIfExists(filePath);
+            imageVariantService.deleteVariants(relativePath);
             log.info("✅ Deleted image: {}", relativePath);
         } catch (IOException e) {
             log.error("❌ Failed to delete image: {}", relativePath, e);
         }
     }
 
+    /**
+     * Xóa file không còn được tham chiếu (dùng bởi OrphanFileCollector)
+     *
+     * Blob chỉ bị xóa nếu không có upload trùng nội dung nào sau graceCutoff
+     * (upload mới có thể chưa kịp được gắn vào order/add-on/avatar)
+     *
+     * @return true nếu file đã bị xóa
+     */
+    public boolean deleteOrphan(String relativePath, LocalDateTime graceCutoff) {
+        try {
+            Path filePath = resolvePath(relativePath);
+
+            Matcher blob = BLOB_PATTERN.matcher(relativePath);
+            if (blob.matches()) {
+                Lock lock = blobLock(blob.group(1));
+                lock.lock();
+                try {
+                    if (!fileBlobService.forgetIfIdle(blob.group(1), graceCutoff)) {
+                        return false;
+                    }
+                    Files.deleteIfExists(filePath);
+                } finally {
+                    lock.unlock();
+                }
+            } else {
+                Files.deleteIfExists(filePath);
+            }
+
+            imageVariantService.deleteVariants(relativePath);
+            log.debug("🗑️ Deleted orphan file: {}", relativePath);
+            return true;
+        } catch (IOException e) {
+            log.error("❌ Failed to delete orphan file: {}", relativePath, e);
+            return false;
+        }
+    }
+
+    /**
+     * Thư mục gốc chứa uploads
+     */
+    public Path rootPath() {
+        return resolvePath("");
+    }
+
     /**
      * Kiểm tra file có tồn tại không
      */
+    @Override
     public boolean exists(String relativePath) {
-        Path filePath = Paths.get(uploadDir).resolve(relativePath).normalize();
+        Path filePath = resolvePath(relativePath);
         return Files.exists(filePath);
     }
-}
\ No newline at end of file
+
+    // ==================== PRIVATE METHODS ====================
+
+    /**
+     * Chế độ UUID: mỗi upload là 1 file mới trong folder (chia shard theo tên)
+     */
+    private String commitUnique(Path temp, String folder, ImageType type) throws IOException {
+        String relativePath = folder + "/" + StorageService.shardedName(UUID.randomUUID().toString(), type);
+        moveInto(temp, resolvePath(relativePath));
+
+        imageVariantService.generateAsync(relativePath, type);
+        return relativePath;
+    }
+
+    /**
+     * Chế độ content-addressed: ghi nhận lần upload, chỉ ghi file nếu nội dung chưa có
+     *
+     * Lock theo hash để deleteOrphan không xóa file giữa lúc ghi nhận upload và
+     * kiểm tra file tồn tại (giả định 1 node ghi vào upload-dir)
+     */
+    private String commitBlob(Path temp, String hash, ImageType type, long size) throws IOException {
+        String relativePath = BLOB_FOLDER + "/" + StorageService.shardedName(hash, type);
+        Path target = resolvePath(relativePath);
+
+        boolean created = false;
+        Lock lock = blobLock(hash);
+        lock.lock();
+        try {
+            fileBlobService.recordUpload(hash, relativePath, size, type.contentType());
+            if (!Files.exists(target)) {
+                moveInto(temp, target);
+                created = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (created) {
+            imageVariantService.generateAsync(relativePath, type);
+        } else {
+            log.debug("🔗 Deduplicated upload: {}", relativePath);
+        }
+        return relativePath;
+    }
+
+    /**
+     * Rename atomic vào thư mục shard; thử lại 1 lần nếu OrphanFileCollector
+     * vừa xóa thư mục shard rỗng giữa createDirectories và move
+     */
+    private void moveInto(Path temp, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private Lock blobLock(String hash) {
+        return blobLocks[Math.floorMod(hash.hashCode(), blobLocks.length)];
+    }
+
+    private MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Copy phần còn lại của stream bằng FileChannel.transferFrom theo từng chunk,
+     * dừng ngay khi vượt MAX_IMAGE_BYTES (đọc dư tối đa 1 byte)
+     */
+    private long transferLimited(ReadableByteChannel source, FileChannel target, long position) throws IOException {
+        long written = 0;
+        long transferred;
+        do {
+            long remaining = MAX_IMAGE_BYTES + 1 - (position + written);
+            transferred = target.transferFrom(source, position + written,
+                    Math.min(TRANSFER_CHUNK_BYTES, remaining));
+            written += transferred;
+
+            if (position + written > MAX_IMAGE_BYTES) {
+                throw new BadRequestException("File size must be less than 10MB");
+            }
+        } while (transferred > 0);
+        return written;
+    }
+
+    private Path resolveFolder(String folder) {
+        if (folder == null || !FOLDER_PATTERN.matcher(folder).matches()) {
+            throw new BadRequestException("Invalid folder: " + folder);
+        }
+        return resolvePath(folder);
+    }
+
+    /**
+     * Resolve path tương đối trong uploadDir, chặn path traversal ("../")
+     */
+    private Path resolvePath(String relativePath) {
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path filePath = root.resolve(relativePath).normalize();
+        if (!filePath.startsWith(root)) {
+            throw new BadRequestException("Invalid path: " + relativePath);
+        }
+        return filePath;
+    }
+
+    private static Lock[] newLocks(int count) {
+        Lock[] locks = new Lock[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("⚠️ Could not delete temp file: {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Chuyển orders đã kết thúc (COMPLETED/CANCELLED) sang bảng archive
+ * và bảo trì các partition theo tháng của bảng archive.
+ * Mỗi batch là 1 transaction độc lập: crash giữa chừng chỉ mất batch đang chạy,
+ * lần chạy sau tiếp tục từ các orders còn lại.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderArchiveService {
+
+    private static final List<String> ARCHIVE_TABLES = List.of(
+            "orders_archive", "quotes_archive", "add_ons_archive");
+
+    private final OrderRepository orderRepository;
+
+    /**
+     * Đảm bảo partition của bảng archive đã tồn tại trước khi có dữ liệu (tạo trước 1 tháng).
+     * Bảng orders không partition: các query nóng không có điều kiện created_at để prune
+     */
+    @Transactional
+    public void ensurePartitions() {
+        LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+
+        for (String table : ARCHIVE_TABLES) {
+            orderRepository.ensureMonthlyPartition(table, thisMonth);
+            orderRepository.ensureMonthlyPartition(table, thisMonth.plusMonths(1));
+        }
+    }
+
+    /**
+     * Archive 1 batch orders kết thúc trước cutoff
+     *
+     * @return Số orders đã archive (nhỏ hơn batchSize nghĩa là đã hết)
+     */
+    @Transactional
+    public int archiveBatch(LocalDateTime cutoff, int batchSize) {
+        int archived = orderRepository.archiveFinishedOrders(cutoff, batchSize);
+
+        if (archived > 0) {
+            log.debug("📦 Archived {} orders finished before {}", archived, cutoff);
+        }
+        return archived;
+    }
+}
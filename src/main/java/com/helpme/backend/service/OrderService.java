@@ -1,6 +1,9 @@
 package com.helpme.backend.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.helpme.backend.dto.CreateOrderRequest;
+import com.helpme.backend.dto.CursorPageDTO;
 import com.helpme.backend.dto.OrderDTO;
 import com.helpme.backend.dto.QuoteDTO;
 import com.helpme.backend.entity.*;
@@ -8,6 +11,8 @@ import com.helpme.backend.exception.BadRequestException;
 import com.helpme.backend.exception.ForbiddenException;
 import com.helpme.backend.exception.NotFoundException;
 import com.helpme.backend.repository.*;
+import com.helpme.backend.service.ProviderCardCache.ProviderCard;
+import com.helpme.backend.util.KeysetCursor;
 import com.helpme.backend.websocket.SocketIOService;
 
 import lombok.RequiredArgsConstructor;
@@ -16,13 +21,22 @@ import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -30,13 +44,24 @@ import java.util.stream.Collectors;
 @Slf4j
 public class OrderService {
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    private static final int EXPORT_PAGE_SIZE = 500;
+
+    // Thứ tự keyset của history: (created_at, id) giảm dần
+    private static final Comparator<Order> NEWEST_FIRST = Comparator
+            .comparing(Order::getCreatedAt)
+            .thenComparing(Order::getId, KeysetCursor.UUID_ORDER)
+            .reversed();
+
     private final OrderRepository orderRepository;
     private final QuoteRepository quoteRepository;
     private final UserRepository userRepository;
-    private final ProviderRepository providerRepository;
+    private final ProviderCardCache providerCardCache;
     private final GeometryFactory geometryFactory;
         private final BroadcastService broadcastService;  // ✅ Add this
     private final SocketIOService socketService;      // ✅ Add this
+    private final OrderStateMachine orderStateMachine;
+    private final ObjectMapper objectMapper;
     
     /**
      * Tạo order mới (Driver only)
@@ -57,7 +82,8 @@ public class OrderService {
         order.setDriverId(driver.getId());
         order.setServiceType(request.getServiceType());
         order.setDescription(request.getDescription());
-        order.setMediaUrls(request.getMediaUrls());
+        order.setMediaUrls(request.getMediaUrls() == null ? null
+                : request.getMediaUrls().stream().map(StorageService::normalizeFileUrl).collect(Collectors.toList()));
         order.setStatus(OrderStatus.BROADCASTING);
         order.setBroadcastRadius(request.getBroadcastRadius());
         order.setFinalAmount(BigDecimal.ZERO);
@@ -71,6 +97,7 @@ public class OrderService {
         Order savedOrder = orderRepository.save(order);
         
         log.info("✅ Order created: {} by driver: {}", savedOrder.getId(), driver.getId());
+        orderStateMachine.fireCreated(savedOrder);
         
         // ✅ Broadcast to nearby providers
         broadcastService.notifyNearbyProviders(savedOrder);
@@ -80,6 +107,7 @@ public class OrderService {
 
     /**
      * Lấy chi tiết order
+     * Card của provider đọc thẳng từ DB: response có ETag tính từ DB (xem ResourceVersions)
      */
     public OrderDTO getOrderDetails(UUID orderId, User user) {
         Order order = orderRepository.findById(orderId)
@@ -94,11 +122,21 @@ public class OrderService {
             throw new ForbiddenException("Access denied");
         }
 
-        return toOrderDTO(order);
+        return toOrderDTOs(List.of(order), true).get(0);
+    }
+
+    /**
+     * Trạng thái order của driver (không load quotes)
+     */
+    public OrderStatus getOrderStatus(UUID orderId, User driver) {
+        return orderRepository.findByIdAndDriverId(orderId, driver.getId())
+                .map(Order::getStatus)
+                .orElseThrow(() -> new NotFoundException("Order not found"));
     }
 
     /**
      * Lấy danh sách quotes của order (Driver only)
+     * Card của providers đọc thẳng từ DB: response có ETag tính từ DB (xem ResourceVersions)
      */
     public List<QuoteDTO> getQuotes(UUID orderId, User driver) {
         Order order = orderRepository.findByIdAndDriverId(orderId, driver.getId())
@@ -106,44 +144,50 @@ public class OrderService {
 
         List<Quote> quotes = quoteRepository.findByOrderIdOrderByCreatedAtAsc(orderId);
 
-        return quotes.stream()
-                .map(this::toQuoteDTO)
-                .collect(Collectors.toList());
+        return toQuoteDTOs(quotes, true);
     }
 
     /**
      * Accept một quote (Driver only)
+     *
+     * Dùng conditional update thay vì read-check-save: row lock của UPDATE
+     * đảm bảo chỉ 1 request accept thành công khi nhiều request chạy song song
      */
     public void acceptQuote(UUID quoteId, User driver) {
         Quote quote = quoteRepository.findById(quoteId)
                 .orElseThrow(() -> new NotFoundException("Quote not found"));
 
-        Order order = orderRepository.findById(quote.getOrderId())
-                .orElseThrow(() -> new NotFoundException("Order not found"));
+        UUID orderId = quote.getOrderId();
 
-        if (!order.getDriverId().equals(driver.getId())) {
-            throw new ForbiddenException("Not your order");
-        }
+        int matched = orderRepository.matchIfBroadcasting(
+                orderId,
+                driver.getId(),
+                quote.getProviderId(),
+                quote.getTotalEst(),
+                LocalDateTime.now());
+
+        if (matched == 0) {
+            Order order = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new NotFoundException("Order not found"));
 
-        if (order.getStatus() != OrderStatus.BROADCASTING) {
+            if (!order.getDriverId().equals(driver.getId())) {
+                throw new ForbiddenException("Not your order");
+            }
             throw new BadRequestException("Order is not in broadcasting state");
         }
 
-        if (quote.getStatus() != QuoteStatus.PENDING) {
+        // Rollback cả order update nếu quote không còn PENDING
+        if (quoteRepository.acceptIfPending(quoteId) == 0) {
             throw new BadRequestException("Quote is not pending");
         }
 
-        quote.setStatus(QuoteStatus.ACCEPTED);
-        quoteRepository.save(quote);
-
-        quoteRepository.rejectOtherQuotes(order.getId(), quoteId);
+        quoteRepository.rejectOtherQuotes(orderId, quoteId);
 
-        order.setStatus(OrderStatus.MATCHED);
-        order.setProviderId(quote.getProviderId());
-        order.setFinalAmount(quote.getTotalEst());
-        orderRepository.save(order);
+        orderStateMachine.fireTransitioned(
+                orderId, driver.getId(), quote.getProviderId(),
+                OrderStatus.BROADCASTING, OrderStatus.MATCHED);
 
-        log.info("✅ Quote {} accepted for order {}", quoteId, order.getId());
+        log.info("✅ Quote {} accepted for order {}", quoteId, orderId);
 
         // ✅ Notify provider via Socket.IO
         socketService.emitToUser(
@@ -151,24 +195,91 @@ public class OrderService {
                 "quote_accepted",
                 Map.of(
                         "quoteId", quote.getId(),
-                        "orderId", order.getId(),
+                        "orderId", orderId,
                         "message", "Your quote has been accepted!"));
     }
 
     /**
-     * Lấy lịch sử orders
+     * Lấy lịch sử orders (keyset pagination, mới nhất trước)
+     */
+    public CursorPageDTO<OrderDTO> getOrderHistory(User user, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+
+        // Lấy dư 1 bản ghi để biết còn trang sau không
+        List<Order> orders = findHistoryPage(user, KeysetCursor.decode(cursor), pageSize + 1);
+
+        boolean hasMore = orders.size() > pageSize;
+        if (hasMore) {
+            orders = orders.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Order last = orders.get(orders.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return CursorPageDTO.<OrderDTO>builder()
+                .items(toOrderDTOs(orders, false))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Export toàn bộ lịch sử orders dạng JSON array, stream từng trang
+     * (memory cố định, không giữ transaction/connection trong lúc ghi response)
      */
-    public List<OrderDTO> getOrderHistory(User user) {
-        List<Order> orders;
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void exportOrderHistory(User user, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+
+            KeysetCursor cursor = KeysetCursor.FIRST;
+            List<Order> page;
+            do {
+                page = findHistoryPage(user, cursor, EXPORT_PAGE_SIZE);
+                for (OrderDTO dto : toOrderDTOs(page, false)) {
+                    generator.writeObject(dto);
+                }
+                generator.flush();
+
+                if (!page.isEmpty()) {
+                    Order last = page.get(page.size() - 1);
+                    cursor = new KeysetCursor(last.getCreatedAt(), last.getId());
+                }
+            } while (page.size() == EXPORT_PAGE_SIZE);
+
+            generator.writeEndArray();
+        }
+    }
 
+    /**
+     * 1 trang lịch sử gồm cả orders đã archive: lấy tối đa limit bản ghi từ mỗi bảng
+     * rồi merge theo keyset. Không thể đọc hết orders rồi mới sang archive vì order tạo
+     * từ lâu nhưng mới kết thúc vẫn còn ở bảng orders, xen giữa các order đã archive.
+     */
+    private List<Order> findHistoryPage(User user, KeysetCursor cursor, int limit) {
+        List<Order> current;
+        List<Order> archived;
         if (user.getRole() == UserRole.DRIVER) {
-            orders = orderRepository.findByDriverIdOrderByCreatedAtDesc(user.getId());
+            current = orderRepository.findDriverHistoryPage(
+                    user.getId(), cursor.createdAt(), cursor.id(), limit);
+            archived = orderRepository.findDriverArchivedHistoryPage(
+                    user.getId(), cursor.createdAt(), cursor.id(), limit);
         } else {
-            orders = orderRepository.findByProviderIdOrderByCreatedAtDesc(user.getId());
+            current = orderRepository.findProviderHistoryPage(
+                    user.getId(), cursor.createdAt(), cursor.id(), limit);
+            archived = orderRepository.findProviderArchivedHistoryPage(
+                    user.getId(), cursor.createdAt(), cursor.id(), limit);
         }
 
-        return orders.stream()
-                .map(this::toOrderDTO)
+        if (archived.isEmpty()) {
+            return current;
+        }
+        return Stream.concat(current.stream(), archived.stream())
+                .sorted(NEWEST_FIRST)
+                .limit(limit)
                 .collect(Collectors.toList());
     }
 
@@ -176,55 +287,93 @@ public class OrderService {
      * Helper: Convert Order -> OrderDTO with related data
      */
     private OrderDTO toOrderDTO(Order order) {
-        OrderDTO dto = OrderDTO.fromBasic(order);
-
-        // Fetch driver info
-        if (order.getDriverId() != null) {
-            userRepository.findById(order.getDriverId())
-                    .ifPresent(user -> {
-                        dto.setDriverName(user.getFullName());
-                        dto.setDriverPhone(user.getPhone());
-                        dto.setDriverAvatar(user.getAvatarUrl());
-                    });
-        }
+        return toOrderDTOs(List.of(order), false).get(0);
+    }
 
-        // Fetch provider info
-        if (order.getProviderId() != null) {
-            providerRepository.findById(order.getProviderId())
-                    .ifPresent(provider -> {
-                        dto.setProviderOrgName(provider.getOrgName());
-                        dto.setProviderRating(provider.getRatingAvg());
-
-                        userRepository.findById(provider.getId())
-                                .ifPresent(user -> {
-                                    dto.setProviderPhone(user.getPhone());
-                                    dto.setProviderAvatar(user.getAvatarUrl());
-                                });
-                    });
+    /**
+     * Helper: Convert danh sách Order -> OrderDTO
+     * Drivers load bằng 1 query IN (...), providers lấy từ ProviderCardCache
+     *
+     * @param freshCards true: bỏ qua entry đang cache của ProviderCardCache
+     */
+    private List<OrderDTO> toOrderDTOs(List<Order> orders, boolean freshCards) {
+        Set<UUID> driverIds = new HashSet<>();
+        Set<UUID> providerIds = new HashSet<>();
+
+        for (Order order : orders) {
+            if (order.getDriverId() != null) {
+                driverIds.add(order.getDriverId());
+            }
+            if (order.getProviderId() != null) {
+                providerIds.add(order.getProviderId());
+            }
         }
 
-        return dto;
+        Map<UUID, User> drivers = loadUsers(driverIds);
+        Map<UUID, ProviderCard> providerCards = freshCards
+                ? providerCardCache.getAllFresh(providerIds)
+                : providerCardCache.getAll(providerIds);
+
+        return orders.stream()
+                .map(order -> {
+                    OrderDTO dto = OrderDTO.fromBasic(order);
+
+                    // Driver info
+                    User driver = drivers.get(order.getDriverId());
+                    if (driver != null) {
+                        dto.setDriverName(driver.getFullName());
+                        dto.setDriverPhone(driver.getPhone());
+                        dto.setDriverAvatar(driver.getAvatarUrl());
+                    }
+
+                    // Provider info
+                    ProviderCard card = order.getProviderId() != null ? providerCards.get(order.getProviderId()) : null;
+                    if (card != null) {
+                        dto.setProviderOrgName(card.orgName());
+                        dto.setProviderRating(card.rating());
+                        dto.setProviderPhone(card.phone());
+                        dto.setProviderAvatar(card.avatarUrl());
+                    }
+
+                    return dto;
+                })
+                .collect(Collectors.toList());
     }
 
     /**
-     * Helper: Convert Quote -> QuoteDTO with provider info
+     * Helper: Convert danh sách Quote -> QuoteDTO with provider info
      */
-    private QuoteDTO toQuoteDTO(Quote quote) {
-        QuoteDTO dto = QuoteDTO.fromBasic(quote);
-
-        // Fetch provider info
-        providerRepository.findById(quote.getProviderId())
-                .ifPresent(provider -> {
-                    dto.setProviderOrgName(provider.getOrgName());
-                    dto.setProviderRating(provider.getRatingAvg());
-
-                    userRepository.findById(provider.getId())
-                            .ifPresent(user -> {
-                                dto.setProviderPhone(user.getPhone());
-                                dto.setProviderAvatar(user.getAvatarUrl());
-                            });
-                });
-
-        return dto;
+    private List<QuoteDTO> toQuoteDTOs(List<Quote> quotes, boolean freshCards) {
+        Set<UUID> providerIds = quotes.stream()
+                .map(Quote::getProviderId)
+                .collect(Collectors.toSet());
+
+        Map<UUID, ProviderCard> providerCards = freshCards
+                ? providerCardCache.getAllFresh(providerIds)
+                : providerCardCache.getAll(providerIds);
+
+        return quotes.stream()
+                .map(quote -> {
+                    QuoteDTO dto = QuoteDTO.fromBasic(quote);
+
+                    ProviderCard card = providerCards.get(quote.getProviderId());
+                    if (card != null) {
+                        dto.setProviderOrgName(card.orgName());
+                        dto.setProviderRating(card.rating());
+                        dto.setProviderPhone(card.phone());
+                        dto.setProviderAvatar(card.avatarUrl());
+                    }
+
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private Map<UUID, User> loadUsers(Set<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        return userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
     }
 }
\ No newline at end of file
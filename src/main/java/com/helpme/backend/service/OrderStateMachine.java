@@ -0,0 +1,97 @@
+// service/OrderStateMachine.java
+package com.helpme.backend.service;
+
+import com.helpme.backend.entity.Order;
+import com.helpme.backend.entity.OrderStatus;
+import com.helpme.backend.event.OrderCreatedEvent;
+import com.helpme.backend.event.OrderStatusChangedEvent;
+import com.helpme.backend.exception.BadRequestException;
+import com.helpme.backend.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * State machine của order
+ *
+ * BROADCASTING → MATCHED → EN_ROUTE → ARRIVED → IN_SERVICE → COMPLETED
+ * (CANCELLED được phép từ mọi trạng thái trước IN_SERVICE)
+ *
+ * Mỗi transition là 1 câu UPDATE ... WHERE status = :expected, an toàn khi
+ * có nhiều request đồng thời. Sau mỗi transition phát OrderStatusChangedEvent.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderStateMachine {
+
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        TRANSITIONS.put(OrderStatus.BROADCASTING, EnumSet.of(OrderStatus.MATCHED, OrderStatus.CANCELLED));
+        TRANSITIONS.put(OrderStatus.MATCHED, EnumSet.of(OrderStatus.EN_ROUTE, OrderStatus.CANCELLED));
+        TRANSITIONS.put(OrderStatus.EN_ROUTE, EnumSet.of(OrderStatus.ARRIVED, OrderStatus.CANCELLED));
+        TRANSITIONS.put(OrderStatus.ARRIVED, EnumSet.of(OrderStatus.IN_SERVICE, OrderStatus.CANCELLED));
+        TRANSITIONS.put(OrderStatus.IN_SERVICE, EnumSet.of(OrderStatus.COMPLETED));
+        TRANSITIONS.put(OrderStatus.COMPLETED, EnumSet.noneOf(OrderStatus.class));
+        TRANSITIONS.put(OrderStatus.CANCELLED, EnumSet.noneOf(OrderStatus.class));
+    }
+
+    private final OrderRepository orderRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public boolean canTransition(OrderStatus from, OrderStatus to) {
+        return from != null && TRANSITIONS.get(from).contains(to);
+    }
+
+    /**
+     * Chuyển order sang trạng thái mới
+     *
+     * @throws BadRequestException nếu transition không hợp lệ hoặc order
+     *                             đã bị request khác đổi trạng thái
+     */
+    @Transactional
+    public void transition(Order order, OrderStatus next) {
+        OrderStatus current = order.getStatus();
+
+        if (!canTransition(current, next)) {
+            throw new BadRequestException(
+                    "Invalid status transition: " + current + " → " + next);
+        }
+
+        int updated = orderRepository.transitionStatus(order.getId(), current, next, LocalDateTime.now());
+        if (updated == 0) {
+            throw new BadRequestException("Order status has changed, please reload");
+        }
+
+        order.setStatus(next);
+        fireTransitioned(order.getId(), order.getDriverId(), order.getProviderId(), current, next);
+    }
+
+    /**
+     * Phát event cho transition đã được persist bởi câu UPDATE riêng
+     * (vd: acceptQuote cập nhật thêm providerId, finalAmount)
+     */
+    public void fireTransitioned(UUID orderId, UUID driverId, UUID providerId,
+            OrderStatus from, OrderStatus to) {
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, driverId, providerId, from, to));
+        log.debug("🔀 Order {} transitioned: {} → {}", orderId, from, to);
+    }
+
+    /**
+     * Phát event khi order mới được tạo ở trạng thái BROADCASTING
+     */
+    public void fireCreated(Order order) {
+        eventPublisher.publishEvent(new OrderCreatedEvent(order));
+        log.debug("🆕 Order {} created", order.getId());
+    }
+}
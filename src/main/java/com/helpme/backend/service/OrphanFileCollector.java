@@ -0,0 +1,213 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.repository.FileBlobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dọn file upload không còn được tham chiếu
+ *
+ * Duyệt upload-dir, file cũ hơn grace period được gom thành từng lô và đối chiếu
+ * với orders.media_urls, add_ons.evidence_image, users.avatar_url (kể cả bảng
+ * archive) bằng 1 query/lô. File không ai tham chiếu bị xóa kèm variants.
+ * Đồng thời xóa file tạm bị bỏ lại khi crash, variant mất bản gốc và thư mục shard rỗng.
+ */
+@Service
+@ConditionalOnProperty(name = "file.storage-type", havingValue = "local", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class OrphanFileCollector {
+
+    private final LocalStorageService storageService;
+    private final FileBlobRepository fileBlobRepository;
+
+    public record Result(long scanned, long deleted, long bytesFreed, long directoriesRemoved) {
+    }
+
+    /**
+     * @param grace        Chỉ xét file cũ hơn khoảng này (upload mới có thể chưa được gắn vào order)
+     * @param batchSize    Số path mỗi query đối chiếu
+     * @param batchPauseMs Nghỉ giữa các lô để không chiếm DB/disk quá lâu
+     */
+    public Result collect(Duration grace, int batchSize, long batchPauseMs) throws IOException {
+        Path root = storageService.rootPath();
+        if (!Files.isDirectory(root)) {
+            return new Result(0, 0, 0, 0);
+        }
+
+        Sweep sweep = new Sweep(root, Instant.now().minus(grace),
+                LocalDateTime.now().minus(grace), batchSize, batchPauseMs);
+        Files.walkFileTree(root, sweep);
+        sweep.flush();
+
+        return new Result(sweep.scanned, sweep.deleted, sweep.bytesFreed, sweep.directoriesRemoved);
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private class Sweep extends SimpleFileVisitor<Path> {
+
+        private final Path root;
+        private final Instant cutoff;
+        private final LocalDateTime graceCutoff;
+        private final int batchSize;
+        private final long batchPauseMs;
+
+        // Lô hiện tại: relativePath -> size
+        private final Map<String, Long> batch = new LinkedHashMap<>();
+
+        private long scanned;
+        private long deleted;
+        private long bytesFreed;
+        private long directoriesRemoved;
+
+        Sweep(Path root, Instant cutoff, LocalDateTime graceCutoff, int batchSize, long batchPauseMs) {
+            this.root = root;
+            this.cutoff = cutoff;
+            this.graceCutoff = graceCutoff;
+            this.batchSize = batchSize;
+            this.batchPauseMs = batchPauseMs;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+            if (!attributes.isRegularFile()) {
+                return FileVisitResult.CONTINUE;
+            }
+            scanned++;
+
+            if (attributes.lastModifiedTime().toInstant().isAfter(cutoff)) {
+                return FileVisitResult.CONTINUE;
+            }
+
+            String name = file.getFileName().toString();
+            String relativePath = root.relativize(file).toString().replace(File.separatorChar, '/');
+
+            // File tạm (".upload-*.tmp", ".variant-*.tmp") còn sót sau crash
+            if (name.startsWith(".")) {
+                deleteDirectly(file, attributes.size());
+                return FileVisitResult.CONTINUE;
+            }
+
+            if (ImageVariantService.isVariant(relativePath)) {
+                if (originalMissing(file)) {
+                    deleteDirectly(file, attributes.size());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            if (relativePath.indexOf('\n') >= 0) {
+                return FileVisitResult.CONTINUE;
+            }
+
+            batch.put(relativePath, attributes.size());
+            if (batch.size() >= batchSize) {
+                flush();
+                pause();
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+            log.warn("⚠️ Cannot read {} during orphan sweep: {}", file, e.getMessage());
+            return FileVisitResult.CONTINUE;
+        }
+
+        /**
+         * Xóa thư mục con rỗng (shard, addons/<orderId>...), giữ root và các folder cấp 1
+         */
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+            if (dir.equals(root) || root.relativize(dir).getNameCount() < 2) {
+                return FileVisitResult.CONTINUE;
+            }
+            if (Files.getLastModifiedTime(dir).toInstant().isAfter(cutoff) || !isEmpty(dir)) {
+                return FileVisitResult.CONTINUE;
+            }
+
+            try {
+                Files.delete(dir);
+                directoriesRemoved++;
+            } catch (DirectoryNotEmptyException ignored) {
+                // Vừa có upload mới ghi vào
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        /**
+         * Đối chiếu lô hiện tại với DB, xóa các path không được tham chiếu
+         */
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            Set<String> referenced = new HashSet<>(
+                    fileBlobRepository.findReferencedPaths(String.join("\n", batch.keySet())));
+
+            batch.forEach((relativePath, size) -> {
+                if (!referenced.contains(relativePath) && storageService.deleteOrphan(relativePath, graceCutoff)) {
+                    deleted++;
+                    bytesFreed += size;
+                }
+            });
+            batch.clear();
+        }
+
+        private void deleteDirectly(Path file, long size) {
+            try {
+                if (Files.deleteIfExists(file)) {
+                    deleted++;
+                    bytesFreed += size;
+                }
+            } catch (IOException e) {
+                log.warn("⚠️ Could not delete {}: {}", file, e.getMessage());
+            }
+        }
+
+        /**
+         * Variant "abc_thumb.jpg" mất bản gốc nếu không còn file "abc.*" cùng thư mục
+         */
+        private boolean originalMissing(Path variant) throws IOException {
+            String name = variant.getFileName().toString();
+            String base = name.substring(0, name.lastIndexOf('_'));
+            try (DirectoryStream<Path> originals = Files.newDirectoryStream(variant.getParent(), base + ".*")) {
+                return !originals.iterator().hasNext();
+            }
+        }
+
+        private boolean isEmpty(Path dir) throws IOException {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                return !entries.iterator().hasNext();
+            }
+        }
+
+        private void pause() {
+            try {
+                Thread.sleep(batchPauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
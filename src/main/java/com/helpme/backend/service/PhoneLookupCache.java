@@ -0,0 +1,193 @@
+// service/PhoneLookupCache.java
+package com.helpme.backend.service;
+
+import com.helpme.backend.dto.CheckPhoneResponse;
+import com.helpme.backend.repository.UserRepository;
+import com.helpme.backend.util.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache cho check-phone: phone -> (exists, role, fullName)
+ *
+ * - Positive entries giữ trong memory với TTL
+ * - Chỉ khi auth.phone-lookup.single-node = true: bloom filter chứa tất cả phone
+ * đã đăng ký, filter nói "không có" thì trả về exists=false ngay, không cần query DB.
+ * Chạy nhiều node thì phone đăng ký ở node khác không có trong filter/cache của
+ * node này → negative luôn được xác nhận lại bằng DB và không cache
+ */
+@Slf4j
+@Service
+public class PhoneLookupCache {
+
+    private static final int MAX_ENTRIES = 50_000;
+    private static final long ENTRY_TTL_MS = 10 * 60 * 1000; // 10 minutes
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final long MIN_EXPECTED_PHONES = 10_000;
+    private static final int MAX_RECENTLY_REGISTERED = 10_000;
+
+    private static final CheckPhoneResponse NOT_EXISTS = CheckPhoneResponse.builder()
+            .exists(false)
+            .build();
+
+    private final UserRepository userRepository;
+    private final boolean singleNode;
+    private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+
+    // Phones đăng ký trong lúc filter đang rebuild, sẽ được add lại vào filter mới
+    private final Set<String> recentlyRegistered = ConcurrentHashMap.newKeySet();
+    // Số lần recentlyRegistered bị xóa vì đầy → rebuild đang chạy lúc đó không được dùng
+    private final AtomicLong recentlyRegisteredOverflows = new AtomicLong();
+
+    // null cho tới khi load xong từ DB -> chưa dùng được cho negative lookup
+    private volatile BloomFilter knownPhones;
+
+    public PhoneLookupCache(
+            UserRepository userRepository,
+            @Value("${auth.phone-lookup.single-node:false}") boolean singleNode) {
+        this.userRepository = userRepository;
+        this.singleNode = singleNode;
+    }
+
+    /**
+     * Lookup phone: bloom filter (single-node) -> memory cache -> database
+     */
+    public CheckPhoneResponse lookup(String phone) {
+        BloomFilter filter = knownPhones;
+        if (filter != null && !filter.mightContain(phone)) {
+            return NOT_EXISTS;
+        }
+
+        CacheEntry entry = entries.get(phone);
+        if (entry != null && !entry.isExpired()) {
+            return entry.response();
+        }
+
+        CheckPhoneResponse response = userRepository.findByPhone(phone)
+                .map(user -> CheckPhoneResponse.builder()
+                        .exists(true)
+                        .role(user.getRole())
+                        .fullName(user.getFullName())
+                        .build())
+                .orElse(NOT_EXISTS);
+
+        if (response.isExists() || singleNode) {
+            put(phone, response);
+        }
+        return response;
+    }
+
+    /**
+     * Gọi khi có user mới đăng ký (verifyOTP)
+     */
+    public void onRegistered(String phone) {
+        BloomFilter filter = knownPhones;
+        if (filter != null) {
+            filter.put(phone);
+        }
+
+        if (singleNode) {
+            rememberRegistered(phone);
+        }
+        entries.remove(phone);
+
+        // Evict lần nữa sau commit: lookup chạy song song có thể đã cache lại kết quả cũ
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entries.remove(phone);
+                }
+            });
+        }
+
+        log.debug("📇 Phone lookup cache invalidated for {}", phone);
+    }
+
+    /**
+     * Load bloom filter khi app đã start xong
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuildFilter();
+    }
+
+    /**
+     * Rebuild filter định kỳ (sửa false positive tích lũy, thu gọn recentlyRegistered)
+     */
+    @Scheduled(fixedRate = 900000, initialDelay = 900000) // 15 minutes
+    public void rebuildFilter() {
+        if (!singleNode) {
+            return;
+        }
+
+        try {
+            long overflowsBefore = recentlyRegisteredOverflows.get();
+            List<String> phones = userRepository.findAllPhones();
+
+            BloomFilter filter = BloomFilter.create(
+                    Math.max(MIN_EXPECTED_PHONES, phones.size() * 2L),
+                    FALSE_POSITIVE_RATE);
+            phones.forEach(filter::put);
+
+            Set<String> registeredDuringLoad = new HashSet<>(recentlyRegistered);
+            if (recentlyRegisteredOverflows.get() != overflowsBefore) {
+                log.warn("⚠️ Phone lookup filter rebuild discarded, registrations were dropped during load");
+                return;
+            }
+            knownPhones = filter;
+            recentlyRegistered.forEach(filter::put);
+            recentlyRegistered.removeAll(registeredDuringLoad);
+
+            log.info("📇 Phone lookup filter rebuilt with {} phones", phones.size());
+        } catch (Exception e) {
+            log.error("❌ Failed to rebuild phone lookup filter: {}", e.getMessage());
+        }
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    /**
+     * Giữ phone mới đăng ký cho lần rebuild kế tiếp
+     * Rebuild lỗi liên tục làm set đầy → tắt negative lookup tới khi rebuild thành công
+     * (filter mới có thể thiếu các phone bị bỏ khỏi set)
+     */
+    private void rememberRegistered(String phone) {
+        if (recentlyRegistered.size() >= MAX_RECENTLY_REGISTERED) {
+            knownPhones = null;
+            recentlyRegisteredOverflows.incrementAndGet();
+            recentlyRegistered.clear();
+            log.warn("⚠️ Phone lookup filter disabled until next rebuild (too many pending registrations)");
+        }
+        recentlyRegistered.add(phone);
+    }
+
+    private void put(String phone, CheckPhoneResponse response) {
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.values().removeIf(CacheEntry::isExpired);
+            if (entries.size() >= MAX_ENTRIES) {
+                entries.clear();
+            }
+        }
+        entries.put(phone, new CacheEntry(response, System.currentTimeMillis() + ENTRY_TTL_MS));
+    }
+
+    private record CacheEntry(CheckPhoneResponse response, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+// service/ProviderCardCache.java
+package com.helpme.backend.service;
+
+import com.helpme.backend.entity.Provider;
+import com.helpme.backend.entity.User;
+import com.helpme.backend.repository.ProviderRepository;
+import com.helpme.backend.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cache thông tin hiển thị của provider (orgName, rating, phone, avatar)
+ * dùng chung cho QuoteDTO, OrderDTO và ratings
+ *
+ * - Bounded + TTL
+ * - Invalidate khi rating / profile / avatar thay đổi
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProviderCardCache {
+
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long ENTRY_TTL_MS = 5 * 60 * 1000; // 5 minutes
+
+    private final ProviderRepository providerRepository;
+    private final UserRepository userRepository;
+
+    private final Map<UUID, CacheEntry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Lấy card của 1 provider (null nếu provider không tồn tại)
+     */
+    public ProviderCard get(UUID providerId) {
+        if (providerId == null) {
+            return null;
+        }
+        return getAll(Set.of(providerId)).get(providerId);
+    }
+
+    /**
+     * Lấy cards của nhiều providers, các entry bị miss được load bằng
+     * 1 query IN (...) cho providers + 1 query cho users
+     */
+    public Map<UUID, ProviderCard> getAll(Collection<UUID> providerIds) {
+        Map<UUID, ProviderCard> result = new HashMap<>();
+        Set<UUID> missing = new HashSet<>();
+
+        for (UUID providerId : providerIds) {
+            CacheEntry entry = entries.get(providerId);
+            if (entry != null && !entry.isExpired()) {
+                result.put(providerId, entry.card());
+            } else {
+                missing.add(providerId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            result.putAll(load(missing));
+        }
+
+        return result;
+    }
+
+    /**
+     * Lấy cards đọc thẳng từ DB (bỏ qua entry đang cache, làm mới cache)
+     * Dùng cho response có ETag: version đọc từ DB trước khi load, body không được cũ hơn version
+     */
+    public Map<UUID, ProviderCard> getAllFresh(Collection<UUID> providerIds) {
+        if (providerIds.isEmpty()) {
+            return Map.of();
+        }
+        return load(new HashSet<>(providerIds));
+    }
+
+    /**
+     * Xóa card khỏi cache (rating update, đổi profile, upload avatar)
+     */
+    public void invalidate(UUID providerId) {
+        entries.remove(providerId);
+
+        // Evict lần nữa sau commit: request song song có thể đã cache lại dữ liệu cũ
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entries.remove(providerId);
+                }
+            });
+        }
+
+        log.debug("🪪 Provider card invalidated: {}", providerId);
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    /**
+     * Load cards bằng 1 query IN (...) cho providers + 1 query cho users, ghi vào cache
+     */
+    private Map<UUID, ProviderCard> load(Set<UUID> providerIds) {
+        Map<UUID, ProviderCard> result = new HashMap<>();
+        Map<UUID, User> users = userRepository.findAllById(providerIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        for (Provider provider : providerRepository.findAllById(providerIds)) {
+            User user = users.get(provider.getId());
+            ProviderCard card = new ProviderCard(
+                    provider.getId(),
+                    provider.getOrgName(),
+                    provider.getRatingAvg(),
+                    user != null ? user.getPhone() : null,
+                    user != null ? user.getAvatarUrl() : null);
+
+            put(card);
+            result.put(card.providerId(), card);
+        }
+        return result;
+    }
+
+    private void put(ProviderCard card) {
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.values().removeIf(CacheEntry::isExpired);
+            if (entries.size() >= MAX_ENTRIES) {
+                entries.clear();
+            }
+        }
+        entries.put(card.providerId(), new CacheEntry(card, System.currentTimeMillis() + ENTRY_TTL_MS));
+    }
+
+    public record ProviderCard(
+            UUID providerId,
+            String orgName,
+            BigDecimal rating,
+            String phone,
+            String avatarUrl) {
+    }
+
+    private record CacheEntry(ProviderCard card, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
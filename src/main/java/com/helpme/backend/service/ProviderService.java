@@ -1,6 +1,7 @@
 // service/ProviderService.java
 package com.helpme.backend.service;
 
+import com.helpme.backend.dto.NearbyOrderChangesDTO;
 import com.helpme.backend.dto.OrderDTO;
 import com.helpme.backend.entity.Order;
 import com.helpme.backend.entity.OrderStatus;
@@ -10,6 +11,9 @@ import com.helpme.backend.exception.ForbiddenException;
 import com.helpme.backend.exception.NotFoundException;
 import com.helpme.backend.repository.OrderRepository;
 import com.helpme.backend.repository.ProviderRepository;
+import com.helpme.backend.service.BroadcastingOrderIndex.BroadcastingOrder;
+import com.helpme.backend.service.BroadcastingOrderIndex.Change;
+import com.helpme.backend.service.BroadcastingOrderIndex.NearbyOrder;
 import lombok.extern.slf4j.Slf4j;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
@@ -19,7 +23,13 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -27,24 +37,36 @@ import java.util.stream.Collectors;
 @Service
 public class ProviderService {
 
+    private static final int MAX_NEARBY_LIMIT = 100;
+    public static final int MAX_NEARBY_RADIUS = 50_000; // 50km
+
     private final ProviderRepository providerRepository;
     private final OrderRepository orderRepository;
+    private final OrderStateMachine orderStateMachine;
+    private final BroadcastingOrderIndex broadcastingOrderIndex;
     private final LocationService locationService; // ✅ Use interface
     private final GeometryFactory geometryFactory;
     private final boolean redisEnabled;
+    private final int broadcastWindowHours;
 
     // ✅ Constructor with optional LocationService
     public ProviderService(
             ProviderRepository providerRepository,
             OrderRepository orderRepository,
+            OrderStateMachine orderStateMachine,
+            BroadcastingOrderIndex broadcastingOrderIndex,
             @Autowired(required = false) LocationService locationService,
             GeometryFactory geometryFactory,
-            @Value("${spring.data.redis.enabled:false}") boolean redisEnabled) {
+            @Value("${spring.data.redis.enabled:false}") boolean redisEnabled,
+            @Value("${orders.broadcast-window-hours:0}") int broadcastWindowHours) {
         this.providerRepository = providerRepository;
         this.orderRepository = orderRepository;
+        this.orderStateMachine = orderStateMachine;
+        this.broadcastingOrderIndex = broadcastingOrderIndex;
         this.locationService = locationService;
         this.geometryFactory = geometryFactory;
         this.redisEnabled = redisEnabled;
+        this.broadcastWindowHours = broadcastWindowHours;
 
         log.info("🔧 ProviderService initialized with Redis: {}", redisEnabled ? "ENABLED" : "DISABLED");
     }
@@ -70,27 +92,84 @@ public class ProviderService {
     }
 
     /**
-     * Find nearby orders for provider
+     * Find nearby orders for provider (đọc từ BroadcastingOrderIndex, sắp xếp theo khoảng cách)
      */
-    public List<OrderDTO> findNearbyOrders(double lat, double lng, int radius, User user) {
-        Provider provider = providerRepository.findById(user.getId())
-                .orElseThrow(() -> new NotFoundException("Provider not found"));
-
-        if (!provider.getIsOnline()) {
-            log.warn("⚠️ Provider {} is offline, returning empty list", provider.getId());
+    public List<OrderDTO> findNearbyOrders(double lat, double lng, int radius, int limit, User user) {
+        Provider provider = findOnlineProvider(user);
+        if (provider == null) {
             return List.of();
         }
 
-        // Find nearby BROADCASTING orders from database
-        // Point location = geometryFactory.createPoint(new Coordinate(lng, lat));
-        List<Order> nearbyOrders = orderRepository.findNearbyBroadcastingOrders(lat, lng, radius);
+        int clampedRadius = clampNearbyRadius(radius);
+        List<OrderDTO> orders = nearbyOrders(lat, lng, clampedRadius, limit);
 
         log.info("📍 Found {} nearby orders for provider {} within {}m",
-                nearbyOrders.size(), provider.getId(), radius);
+                orders.size(), provider.getId(), clampedRadius);
 
-        return nearbyOrders.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return orders;
+    }
+
+    /**
+     * Delta feed orders gần provider: chỉ trả về orders thêm/bỏ kể từ cursor
+     * Không có cursor hoặc cursor quá cũ -> trả toàn bộ danh sách (reset = true)
+     */
+    public NearbyOrderChangesDTO getNearbyOrderChanges(double lat, double lng, int radius,
+            String cursor, User user) {
+        // Provider offline: giống findNearbyOrders, không thấy order nào (kể cả delta)
+        if (findOnlineProvider(user) == null) {
+            return NearbyOrderChangesDTO.builder()
+                    .added(List.of())
+                    .removed(List.of())
+                    .cursor(broadcastingOrderIndex.currentCursor())
+                    .reset(true)
+                    .build();
+        }
+
+        radius = clampNearbyRadius(radius);
+        LocalDateTime since = broadcastSince();
+
+        Optional<List<Change>> changes = cursor == null || cursor.isBlank()
+                ? Optional.empty()
+                : broadcastingOrderIndex.changesSince(cursor);
+
+        if (changes.isEmpty()) {
+            // Lấy cursor trước snapshot: thay đổi xảy ra trong lúc lấy snapshot sẽ được gửi lại lần sau
+            String snapshotCursor = broadcastingOrderIndex.currentCursor();
+            List<OrderDTO> orders = nearbyOrders(lat, lng, radius, MAX_NEARBY_LIMIT);
+
+            return NearbyOrderChangesDTO.builder()
+                    .added(orders)
+                    .removed(List.of())
+                    .cursor(snapshotCursor)
+                    .reset(true)
+                    .build();
+        }
+
+        Map<UUID, OrderDTO> added = new LinkedHashMap<>();
+        Set<UUID> removed = new LinkedHashSet<>();
+        String nextCursor = cursor;
+
+        for (Change change : changes.get()) {
+            nextCursor = broadcastingOrderIndex.cursorOf(change.sequence());
+            BroadcastingOrder order = change.order();
+            if (!isVisible(order, lat, lng, radius, since)) {
+                continue;
+            }
+
+            if (change.added()) {
+                added.put(order.id(), order.toDTO(order.distanceTo(lat, lng)));
+                removed.remove(order.id());
+            } else if (added.remove(order.id()) == null) {
+                removed.add(order.id());
+            }
+        }
+
+        return NearbyOrderChangesDTO.builder()
+                .added(List.copyOf(added.values()))
+                .removed(List.copyOf(removed))
+                .cursor(nextCursor)
+                .reset(false)
+                .build();
     }
 
     /**
@@ -124,37 +203,59 @@ public class ProviderService {
                 .orElseThrow(() -> new NotFoundException("Order not found"));
 
         // Verify this provider owns the order
-        if (!order.getProviderId().equals(providerUser.getId())) {
+        if (order.getProviderId() == null || !order.getProviderId().equals(providerUser.getId())) {
             throw new ForbiddenException("You are not assigned to this order");
         }
 
-        // Validate status transition
-        validateStatusTransition(order.getStatus(), newStatus);
+        OrderStatus previous = order.getStatus();
+
+        // Validate + conditional update + event (OrderStateMachine)
+        orderStateMachine.transition(order, newStatus);
 
-        order.setStatus(newStatus);
-        orderRepository.save(order);
+        log.info("✅ Order {} status updated: {} → {}", orderId, previous, newStatus);
+    }
 
-        log.info("✅ Order {} status updated: {} → {}", orderId, order.getStatus(), newStatus);
+    /**
+     * Giới hạn bán kính tìm orders gần (dùng chung cho REST và socket subscribe_nearby)
+     */
+    public static int clampNearbyRadius(int radius) {
+        return Math.min(Math.max(radius, 1), MAX_NEARBY_RADIUS);
     }
 
     // ==================== PRIVATE METHODS ====================
 
-    private void validateStatusTransition(OrderStatus current, OrderStatus next) {
-        // Add validation logic
-        // Example: MATCHED → EN_ROUTE → ARRIVED → IN_SERVICE → COMPLETED
+    /**
+     * Provider của user nếu đang online, null nếu offline
+     */
+    private Provider findOnlineProvider(User user) {
+        Provider provider = providerRepository.findById(user.getId())
+                .orElseThrow(() -> new NotFoundException("Provider not found"));
+
+        if (!provider.getIsOnline()) {
+            log.warn("⚠️ Provider {} is offline, returning empty list", provider.getId());
+            return null;
+        }
+        return provider;
+    }
+
+    private List<OrderDTO> nearbyOrders(double lat, double lng, int radius, int limit) {
+        List<NearbyOrder> nearbyOrders = broadcastingOrderIndex.findNearby(
+                lat, lng, radius, broadcastSince(), Math.min(Math.max(limit, 1), MAX_NEARBY_LIMIT));
+
+        return nearbyOrders.stream()
+                .map(nearby -> nearby.order().toDTO(nearby.distanceMeters()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Mốc thời gian cũ nhất của orders BROADCASTING mà provider được thấy (null = không giới hạn)
+     */
+    private LocalDateTime broadcastSince() {
+        return broadcastWindowHours > 0 ? LocalDateTime.now().minusHours(broadcastWindowHours) : null;
     }
 
-    private OrderDTO convertToDTO(Order order) {
-        OrderDTO dto = new OrderDTO();
-        dto.setId(order.getId());
-        dto.setProviderId(order.getProviderId());
-        dto.setStatus(order.getStatus());
-        dto.setServiceType(order.getServiceType());
-        dto.setDescription(order.getDescription());
-        dto.setPickupLat(order.getPickupLocation().getY());
-        dto.setPickupLng(order.getPickupLocation().getX());
-        dto.setMediaUrls(order.getMediaUrls());
-        dto.setCreatedAt(order.getCreatedAt());
-        return dto;
+    private boolean isVisible(BroadcastingOrder order, double lat, double lng, int radius, LocalDateTime since) {
+        return (since == null || order.createdAt() == null || !order.createdAt().isBefore(since))
+                && order.distanceTo(lat, lng) <= radius;
     }
 }
\ No newline at end of file
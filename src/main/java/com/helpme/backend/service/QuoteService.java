@@ -3,14 +3,15 @@ package com.helpme.backend.service;
 import com.helpme.backend.dto.CreateQuoteRequest;
 import com.helpme.backend.dto.QuoteDTO;
 import com.helpme.backend.entity.*;
+import com.helpme.backend.event.QuoteCreatedEvent;
 import com.helpme.backend.exception.BadRequestException;
 import com.helpme.backend.exception.ForbiddenException;
 import com.helpme.backend.exception.NotFoundException;
 import com.helpme.backend.repository.*;
-import com.helpme.backend.websocket.SocketIOService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,8 +26,8 @@ public class QuoteService {
     private final QuoteRepository quoteRepository;
     private final OrderRepository orderRepository;
     private final ProviderRepository providerRepository;
-    private final UserRepository userRepository;
-    private final SocketIOService socketService;  // ✅ Add this
+    private final ProviderCardCache providerCardCache;
+    private final ApplicationEventPublisher eventPublisher;
     
     /**
      * Tạo quote mới (Provider only)
@@ -76,13 +77,9 @@ public class QuoteService {
         log.info("✅ Quote created: {} for order: {} by provider: {}", 
                  savedQuote.getId(), order.getId(), provider.getId());
         
-        // ✅ Notify driver via Socket.IO
+        // ✅ Notify driver (socket "new_quote_received" + SSE quote stream) sau khi commit
         QuoteDTO quoteDTO = toQuoteDTO(savedQuote);
-        socketService.emitToUser(
-            order.getDriverId(),
-            "new_quote_received",
-            quoteDTO
-        );
+        eventPublisher.publishEvent(new QuoteCreatedEvent(order.getId(), order.getDriverId(), quoteDTO));
         
         return quoteDTO;
     }
@@ -93,18 +90,14 @@ public class QuoteService {
     private QuoteDTO toQuoteDTO(Quote quote) {
         QuoteDTO dto = QuoteDTO.fromBasic(quote);
 
-        // Fetch provider info
-        providerRepository.findById(quote.getProviderId())
-                .ifPresent(provider -> {
-                    dto.setProviderOrgName(provider.getOrgName());
-                    dto.setProviderRating(provider.getRatingAvg());
-
-                    userRepository.findById(provider.getId())
-                            .ifPresent(user -> {
-                                dto.setProviderPhone(user.getPhone());
-                                dto.setProviderAvatar(user.getAvatarUrl());
-                            });
-                });
+        // Provider info từ cache (không query DB khi cache hit)
+        ProviderCardCache.ProviderCard card = providerCardCache.get(quote.getProviderId());
+        if (card != null) {
+            dto.setProviderOrgName(card.orgName());
+            dto.setProviderRating(card.rating());
+            dto.setProviderPhone(card.phone());
+            dto.setProviderAvatar(card.avatarUrl());
+        }
 
         return dto;
     }
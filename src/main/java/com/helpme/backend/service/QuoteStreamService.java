@@ -0,0 +1,185 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.dto.QuoteDTO;
+import com.helpme.backend.entity.OrderStatus;
+import com.helpme.backend.entity.User;
+import com.helpme.backend.event.OrderStatusChangedEvent;
+import com.helpme.backend.event.QuoteCreatedEvent;
+import com.helpme.backend.exception.BadRequestException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stream quotes của order tới driver qua Server-Sent Events.
+ * Dùng chung nguồn QuoteCreatedEvent với socket event "new_quote_received".
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class QuoteStreamService {
+
+    private static final long EMITTER_TIMEOUT_MS = 10 * 60 * 1000L;
+    private static final int MAX_EMITTERS_PER_ORDER = 5;
+    private static final int MAX_EMITTERS = 10000;
+
+    private final OrderService orderService;
+
+    // Map: orderId -> các SSE connections đang mở
+    private final Map<UUID, Set<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final AtomicInteger emitterCount = new AtomicInteger();
+
+    /**
+     * Mở stream quotes cho order: gửi ngay danh sách quotes hiện có ("quotes"),
+     * sau đó mỗi quote mới là 1 event "new_quote_received".
+     * Order đã rời BROADCASTING: gửi "order_status_changed" rồi đóng stream ngay.
+     */
+    public SseEmitter subscribe(UUID orderId, User driver) {
+        // Kiểm tra quyền (NotFoundException nếu không phải order của driver)
+        OrderStatus status = orderService.getOrderStatus(orderId, driver);
+
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        if (status != OrderStatus.BROADCASTING) {
+            sendStatusAndComplete(orderId, emitter, status);
+            return emitter;
+        }
+
+        if (!register(orderId, emitter)) {
+            throw new BadRequestException("Too many open quote streams");
+        }
+
+        emitter.onCompletion(() -> remove(orderId, emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> emitter.complete());
+
+        // Đăng ký trước rồi mới đọc snapshot: quote mới trong lúc này có thể bị gửi 2 lần
+        // (client dedupe theo id) nhưng không bị mất
+        List<QuoteDTO> existingQuotes = orderService.getQuotes(orderId, driver);
+        send(orderId, emitter, "quotes", existingQuotes);
+
+        // Order rời BROADCASTING trước khi emitter được đăng ký thì event đã lỡ: kiểm tra lại
+        status = orderService.getOrderStatus(orderId, driver);
+        if (status != OrderStatus.BROADCASTING && isRegistered(orderId, emitter)) {
+            remove(orderId, emitter);
+            sendStatusAndComplete(orderId, emitter, status);
+            return emitter;
+        }
+
+        log.debug("📡 Driver {} opened quote stream for order {}", driver.getId(), orderId);
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onQuoteCreated(QuoteCreatedEvent event) {
+        Set<SseEmitter> orderEmitters = emitters.get(event.orderId());
+        if (orderEmitters == null) {
+            return;
+        }
+
+        orderEmitters.forEach(emitter -> send(event.orderId(), emitter, "new_quote_received", event.quote()));
+    }
+
+    /**
+     * Order rời BROADCASTING: không còn quote mới, báo status rồi đóng stream
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        if (event.from() != OrderStatus.BROADCASTING) {
+            return;
+        }
+
+        Set<SseEmitter> orderEmitters = emitters.remove(event.orderId());
+        if (orderEmitters == null) {
+            return;
+        }
+        // Set đã rời map → remove() từ onCompletion không thấy nữa, trả lại slot ở đây
+        emitterCount.addAndGet(-orderEmitters.size());
+
+        orderEmitters.forEach(emitter -> sendStatusAndComplete(event.orderId(), emitter, event.to()));
+    }
+
+    /**
+     * Gửi heartbeat mỗi 20 giây để proxy không cắt connection, đồng thời dọn connection chết
+     */
+    @Scheduled(fixedRate = 20000)
+    public void heartbeat() {
+        emitters.forEach((orderId, orderEmitters) -> orderEmitters.forEach(emitter -> {
+            try {
+                emitter.send(SseEmitter.event().comment("ping"));
+            } catch (IOException | IllegalStateException e) {
+                emitter.complete();
+                remove(orderId, emitter);
+            }
+        }));
+    }
+
+    /**
+     * Số SSE connections đang mở (tất cả orders)
+     */
+    public int openStreamCount() {
+        return emitterCount.get();
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    /**
+     * Thêm emitter vào set của order nếu còn slot (atomic theo order,
+     * không để lại set rỗng trong map khi bị từ chối)
+     */
+    private boolean register(UUID orderId, SseEmitter emitter) {
+        boolean[] added = { false };
+        emitters.compute(orderId, (k, set) -> {
+            Set<SseEmitter> orderEmitters = set != null ? set : ConcurrentHashMap.newKeySet();
+            if (orderEmitters.size() < MAX_EMITTERS_PER_ORDER && emitterCount.get() < MAX_EMITTERS) {
+                orderEmitters.add(emitter);
+                emitterCount.incrementAndGet();
+                added[0] = true;
+            }
+            return orderEmitters.isEmpty() ? null : orderEmitters;
+        });
+        return added[0];
+    }
+
+    private void sendStatusAndComplete(UUID orderId, SseEmitter emitter, OrderStatus status) {
+        send(orderId, emitter, "order_status_changed", Map.of(
+                "orderId", orderId,
+                "status", status));
+        emitter.complete();
+    }
+
+    private boolean isRegistered(UUID orderId, SseEmitter emitter) {
+        Set<SseEmitter> orderEmitters = emitters.get(orderId);
+        return orderEmitters != null && orderEmitters.contains(emitter);
+    }
+
+    private void send(UUID orderId, SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("⚠️ Quote stream for order {} closed: {}", orderId, e.getMessage());
+            emitter.complete();
+            remove(orderId, emitter);
+        }
+    }
+
+    private void remove(UUID orderId, SseEmitter emitter) {
+        emitters.computeIfPresent(orderId, (k, set) -> {
+            if (set.remove(emitter)) {
+                emitterCount.decrementAndGet();
+            }
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
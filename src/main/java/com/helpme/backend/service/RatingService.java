@@ -1,5 +1,6 @@
 package com.helpme.backend.service;
 
+import com.helpme.backend.dto.CursorPageDTO;
 import com.helpme.backend.dto.ProviderRatingStatsDTO;
 import com.helpme.backend.dto.RateProviderRequest;
 import com.helpme.backend.dto.RatingDTO;
@@ -8,18 +9,15 @@ import com.helpme.backend.exception.BadRequestException;
 import com.helpme.backend.exception.ForbiddenException;
 import com.helpme.backend.exception.NotFoundException;
 import com.helpme.backend.repository.*;
+import com.helpme.backend.repository.RatingRepository.RatingView;
+import com.helpme.backend.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -27,10 +25,12 @@ import java.util.stream.Collectors;
 @Slf4j
 public class RatingService {
 
+    private static final int MAX_RATINGS_PAGE_SIZE = 100;
+
     private final RatingRepository ratingRepository;
     private final OrderRepository orderRepository;
-    private final ProviderRepository providerRepository;
-    private final UserRepository userRepository;
+    private final ProviderRatingStatsRepository ratingStatsRepository;
+    private final ProviderCardCache providerCardCache;
 
     /**
      * Driver đánh giá provider sau khi order COMPLETED
@@ -63,101 +63,90 @@ public class RatingService {
         Rating rating = new Rating();
         rating.setOrderId(order.getId());
         rating.setProviderId(order.getProviderId());
+        rating.setDriverId(order.getDriverId());
         rating.setRating(request.getRating());
         rating.setComment(request.getComment());
 
         Rating savedRating = ratingRepository.save(rating);
 
-        // Update provider average rating
-        updateProviderRating(order.getProviderId());
+        // Update provider rating aggregate
+        updateProviderRating(order.getProviderId(), request.getRating());
 
         log.info("✅ Order {} rated with {} stars by driver {}",
                 orderId, request.getRating(), driver.getId());
 
-        return toRatingDTO(savedRating);
+        RatingDTO dto = RatingDTO.from(savedRating);
+        dto.setDriverName(driver.getFullName());
+        dto.setDriverAvatar(driver.getAvatarUrl());
+        return dto;
     }
 
     /**
-     * Lấy ratings của provider
+     * Lấy ratings của provider (cursor pagination, mới nhất trước)
+     * Không cache trong memory: endpoint trả ETag tính từ DB (304 khi không đổi),
+     * body cache theo node sẽ cũ hơn ETag
      */
-    public List<RatingDTO> getProviderRatings(UUID providerId) {
-        Provider provider = providerRepository.findById(providerId)
-                .orElseThrow(() -> new NotFoundException("Provider not found"));
+    public CursorPageDTO<RatingDTO> getProviderRatings(UUID providerId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_RATINGS_PAGE_SIZE));
+        requireProvider(providerId);
+
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        List<RatingView> ratings = ratingRepository.findProviderRatingsPage(
+                providerId, position.createdAt(), position.id(), pageSize + 1);
+
+        boolean hasMore = ratings.size() > pageSize;
+        if (hasMore) {
+            ratings = ratings.subList(0, pageSize);
+        }
 
-        List<Rating> ratings = ratingRepository.findByProviderIdOrderByCreatedAtDesc(providerId);
+        String nextCursor = null;
+        if (hasMore) {
+            RatingView last = ratings.get(ratings.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
 
-        return ratings.stream()
-                .map(this::toRatingDTO)
-                .collect(Collectors.toList());
+        return CursorPageDTO.<RatingDTO>builder()
+                .items(ratings.stream().map(RatingDTO::from).toList())
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
     }
 
     /**
-     * Lấy thống kê ratings của provider
+     * Lấy thống kê ratings của provider (1 lần đọc theo primary key từ provider_rating_stats)
      */
     public ProviderRatingStatsDTO getProviderRatingStats(UUID providerId) {
-        Provider provider = providerRepository.findById(providerId)
-                .orElseThrow(() -> new NotFoundException("Provider not found"));
-
-        Double avgRating = ratingRepository.calculateAverageRating(providerId);
-        List<Object[]> breakdown = ratingRepository.countRatingsByLevel(providerId);
-
-        // Convert breakdown to Map
-        Map<Integer, Long> ratingBreakdown = new HashMap<>();
-        for (int i = 1; i <= 5; i++) {
-            ratingBreakdown.put(i, 0L);
-        }
-
-        breakdown.forEach(row -> {
-            Integer ratingLevel = (Integer) row[0];
-            Long count = (Long) row[1];
-            ratingBreakdown.put(ratingLevel, count);
-        });
-
-        Long totalRatings = ratingBreakdown.values().stream()
-                .mapToLong(Long::longValue)
-                .sum();
+        ProviderRatingStats stats = ratingStatsRepository.findById(providerId)
+                .orElseGet(() -> {
+                    requireProvider(providerId);
+                    return ProviderRatingStats.builder().providerId(providerId).build();
+                });
 
         return ProviderRatingStatsDTO.builder()
-                .averageRating(avgRating != null ? BigDecimal.valueOf(avgRating).setScale(1, RoundingMode.HALF_UP)
-                        : BigDecimal.ZERO)
-                .totalRatings(totalRatings)
-                .ratingBreakdown(ratingBreakdown)
+                .averageRating(stats.average())
+                .totalRatings(stats.getRatingCount())
+                .ratingBreakdown(stats.breakdown())
                 .build();
     }
 
     /**
-     * Update provider average rating
+     * Cộng rating mới vào aggregate và đồng bộ providers.rating_avg
+     * (2 câu UPDATE atomic, không đọc-sửa-ghi nên an toàn khi nhiều rating cùng lúc)
      */
-    private void updateProviderRating(UUID providerId) {
-        Double avgRating = ratingRepository.calculateAverageRating(providerId);
-
-        if (avgRating != null) {
-            Provider provider = providerRepository.findById(providerId)
-                    .orElseThrow(() -> new NotFoundException("Provider not found"));
-
-            provider.setRatingAvg(
-                    BigDecimal.valueOf(avgRating).setScale(1, RoundingMode.HALF_UP));
-
-            providerRepository.save(provider);
+    private void updateProviderRating(UUID providerId, int rating) {
+        ratingStatsRepository.increment(providerId, rating);
+        ratingStatsRepository.syncProviderRatingAvg(providerId);
+        providerCardCache.invalidate(providerId);
 
-            log.info("✅ Updated provider {} rating to {}", providerId, avgRating);
-        }
+        log.info("✅ Updated rating stats of provider {} with {} stars", providerId, rating);
     }
 
     /**
-     * Helper: Convert Rating -> RatingDTO
+     * Kiểm tra provider tồn tại (qua ProviderCardCache, không query DB khi cache hit)
      */
-    private RatingDTO toRatingDTO(Rating rating) {
-        RatingDTO dto = RatingDTO.from(rating);
-
-        // Fetch driver info (optional - để driver name hiển thị cho provider)
-        orderRepository.findById(rating.getOrderId()).ifPresent(order -> {
-            userRepository.findById(order.getDriverId()).ifPresent(user -> {
-                dto.setDriverName(user.getFullName());
-                dto.setDriverAvatar(user.getAvatarUrl());
-            });
-        });
-
-        return dto;
+    private void requireProvider(UUID providerId) {
+        if (providerCardCache.get(providerId) == null) {
+            throw new NotFoundException("Provider not found");
+        }
     }
-}
\ No newline at end of file
+}
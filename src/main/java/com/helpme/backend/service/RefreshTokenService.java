@@ -0,0 +1,144 @@
+// service/RefreshTokenService.java
+package com.helpme.backend.service;
+
+import com.helpme.backend.entity.RefreshToken;
+import com.helpme.backend.exception.UnauthorizedException;
+import com.helpme.backend.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Refresh token rotation
+ *
+ * - Mỗi lần refresh: revoke token cũ, cấp token mới cùng family
+ * - Token đã revoke bị dùng lại -> revoke cả family (nghi bị đánh cắp), trong
+ *   transaction riêng để không bị rollback cùng UnauthorizedException
+ */
+@Slf4j
+@Service
+@Transactional
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long refreshExpiration;
+    private final TransactionTemplate independentTx;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public RefreshTokenService(
+            RefreshTokenRepository refreshTokenRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${jwt.refresh-expiration}") long refreshExpiration) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshExpiration = refreshExpiration;
+        this.independentTx = new TransactionTemplate(transactionManager);
+        this.independentTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Cấp refresh token mới cho lần đăng nhập mới
+     */
+    public String issue(UUID userId) {
+        return issue(userId, UUID.randomUUID());
+    }
+
+    /**
+     * Đổi refresh token cũ lấy token mới
+     *
+     * @return userId chủ sở hữu + token mới
+     */
+    public Rotation rotate(String rawToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new UnauthorizedException("Invalid refresh token"));
+
+        LocalDateTime now = LocalDateTime.now();
+
+        if (current.getExpiresAt().isBefore(now)) {
+            throw new UnauthorizedException("Refresh token expired");
+        }
+
+        // Conditional update: chỉ 1 request thắng khi refresh song song
+        if (refreshTokenRepository.revokeIfActive(current.getId(), now) == 0) {
+            // Commit ngay: exception bên dưới sẽ rollback transaction của request
+            independentTx.executeWithoutResult(
+                    status -> refreshTokenRepository.revokeFamily(current.getFamilyId(), now));
+            log.warn("⚠️ Refresh token reuse detected for user {}, family {} revoked",
+                    current.getUserId(), current.getFamilyId());
+            throw new UnauthorizedException("Refresh token has been revoked");
+        }
+
+        String newToken = issue(current.getUserId(), current.getFamilyId());
+        return new Rotation(current.getUserId(), newToken);
+    }
+
+    /**
+     * Revoke refresh token (logout thiết bị hiện tại)
+     */
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), LocalDateTime.now()));
+    }
+
+    /**
+     * Revoke tất cả refresh tokens của user (logout mọi thiết bị)
+     */
+    public void revokeAll(UUID userId) {
+        int revoked = refreshTokenRepository.revokeAllByUserId(userId, LocalDateTime.now());
+        log.info("🔒 Revoked {} refresh tokens of user {}", revoked, userId);
+    }
+
+    /**
+     * Chạy mỗi ngày lúc 3:00 AM để xóa refresh tokens đã hết hạn
+     */
+    @Scheduled(cron = "0 0 3 * * *")
+    public void cleanupExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        log.info("🧹 Deleted {} expired refresh tokens", deleted);
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private String issue(UUID userId, UUID familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .userId(userId)
+                .familyId(familyId)
+                .tokenHash(hash(rawToken))
+                .expiresAt(LocalDateTime.now().plus(refreshExpiration, ChronoUnit.MILLIS))
+                .build());
+
+        return rawToken;
+    }
+
+    private String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public record Rotation(UUID userId, String refreshToken) {
+    }
+}
@@ -0,0 +1,64 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.repository.OrderRepository;
+import com.helpme.backend.repository.ProviderRatingStatsRepository;
+import com.helpme.backend.repository.ProviderRepository;
+import com.helpme.backend.repository.QuoteRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Version của các resource hay bị poll (order, quotes, profile, ratings), dùng để tính ETag.
+ *
+ * Version đọc từ DB bằng 1 query nhẹ (cột updated_at / aggregate / hash các cột hiển thị,
+ * gồm cả card của provider) thay vì build DTO: đúng trên mọi instance và sau restart,
+ * không cần bump thủ công khi dữ liệu đổi.
+ */
+@Component
+@RequiredArgsConstructor
+public class ResourceVersions {
+
+    private static final String NO_RATINGS = "0";
+
+    private final OrderRepository orderRepository;
+    private final QuoteRepository quoteRepository;
+    private final ProviderRepository providerRepository;
+    private final ProviderRatingStatsRepository ratingStatsRepository;
+
+    public static String order(UUID orderId) {
+        return "order:" + orderId;
+    }
+
+    public static String orderQuotes(UUID orderId) {
+        return "order-quotes:" + orderId;
+    }
+
+    public static String provider(UUID providerId) {
+        return "provider:" + providerId;
+    }
+
+    public static String providerRatings(UUID providerId) {
+        return "ratings:" + providerId;
+    }
+
+    /**
+     * null nếu order không tồn tại (không phát ETag, loader tự trả 404/403)
+     */
+    public String orderVersion(UUID orderId) {
+        return orderRepository.findDetailVersion(orderId).orElse(null);
+    }
+
+    public String orderQuotesVersion(UUID orderId) {
+        return quoteRepository.findListVersion(orderId);
+    }
+
+    public String providerVersion(UUID providerId) {
+        return providerRepository.findProfileVersion(providerId).orElse(null);
+    }
+
+    public String providerRatingsVersion(UUID providerId) {
+        return ratingStatsRepository.findVersion(providerId).orElse(NO_RATINGS);
+    }
+}
@@ -0,0 +1,297 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.dto.PresignedUploadResponse;
+import com.helpme.backend.exception.BadRequestException;
+import com.helpme.backend.service.ImageVariantService.Variant;
+import com.helpme.backend.util.AwsSigV4;
+import com.helpme.backend.util.ImageType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Lưu ảnh trên object storage S3-compatible (AWS S3, MinIO, R2...)
+ *
+ * Client nên upload thẳng lên bucket bằng presignUpload() và tải ảnh qua
+ * redirect tới presigned GET URL → bytes ảnh không đi qua API node.
+ * Upload qua API (add-on evidence, /v1/files/upload) vẫn được hỗ trợ:
+ * file được kiểm tra magic bytes, spool ra file tạm rồi PUT lên bucket.
+ */
+@Service
+@ConditionalOnProperty(name = "file.storage-type", havingValue = "s3")
+@Slf4j
+public class S3StorageService implements StorageService {
+
+    private static final Duration UPLOAD_URL_TTL = Duration.ofMinutes(15);
+    private static final Duration DOWNLOAD_URL_TTL = Duration.ofHours(1);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Pattern FOLDER_PATTERN = Pattern.compile("[A-Za-z0-9_-]+(/[A-Za-z0-9_-]+)*");
+
+    // Redirect được cache nửa thời hạn của URL → client luôn nhận URL còn hạn
+    private static final String REDIRECT_CACHE_CONTROL = CacheControl
+            .maxAge(DOWNLOAD_URL_TTL.dividedBy(2)).cachePrivate().getHeaderValue();
+
+    private final HttpClient httpClient;
+    private final AwsSigV4 signer;
+    private final URI endpoint;
+    private final String bucket;
+    private final boolean pathStyle;
+
+    public S3StorageService(
+            @Value("${file.s3.endpoint}") String endpoint,
+            @Value("${file.s3.bucket}") String bucket,
+            @Value("${file.s3.region:us-east-1}") String region,
+            @Value("${file.s3.access-key}") String accessKey,
+            @Value("${file.s3.secret-key}") String secretKey,
+            @Value("${file.s3.path-style:true}") boolean pathStyle) {
+        this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        this.bucket = bucket;
+        this.pathStyle = pathStyle;
+        this.signer = new AwsSigV4(region, accessKey, secretKey);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        log.info("✅ S3 storage: {} bucket={} (path-style: {})", this.endpoint, bucket, pathStyle);
+    }
+
+    @Override
+    public StoredImage store(MultipartFile file, String folder) {
+        if (file.isEmpty()) {
+            throw new BadRequestException("File is empty");
+        }
+        if (file.getSize() > MAX_IMAGE_BYTES) {
+            throw new BadRequestException("File size must be less than 10MB");
+        }
+
+        try (InputStream in = file.getInputStream()) {
+            return saveImage(in, folder);
+        } catch (IOException e) {
+            log.error("❌ Failed to save image", e);
+            throw new RuntimeException("Failed to save image: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Kiểm tra magic bytes + giới hạn dung lượng, spool ra file tạm (PUT cần
+     * Content-Length) rồi upload lên bucket
+     */
+    @Override
+    public StoredImage saveImage(InputStream in, String folder) {
+        long started = System.nanoTime();
+        validateFolder(folder);
+
+        Path temp = null;
+        try {
+            byte[] header = in.readNBytes(ImageType.HEADER_BYTES);
+            if (header.length == 0) {
+                throw new BadRequestException("File is empty");
+            }
+
+            ImageType type = ImageType.detect(ByteBuffer.wrap(header));
+            if (type == null) {
+                throw new BadRequestException("File must be a JPEG, PNG, GIF, WEBP or HEIC image");
+            }
+
+            temp = Files.createTempFile("s3-upload-", ".tmp");
+            long size;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                out.write(header);
+                size = header.length + copyLimited(in, out, MAX_IMAGE_BYTES - header.length);
+            }
+
+            String key = folder + "/" + StorageService.shardedName(UUID.randomUUID().toString(), type);
+            putObject(key, temp, type.contentType());
+
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            log.info("✅ Saved image to S3: {} ({} bytes, {}, {}ms)", key, size, type, durationMs);
+
+            return new StoredImage(key, type, size, durationMs);
+
+        } catch (IOException e) {
+            log.error("❌ Failed to save image", e);
+            throw new RuntimeException("Failed to save image: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Upload interrupted", e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    log.warn("⚠️ Could not delete temp file: {}", temp, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Redirect 302 tới presigned GET URL
+     * Chưa có pipeline resize cho S3 → variant luôn trả về bản gốc
+     */
+    @Override
+    public void serveImage(String relativePath, Variant variant,
+            HttpServletRequest request, HttpServletResponse response) {
+        validateKey(relativePath);
+
+        URI url = signer.presign("GET", objectUri(relativePath), Map.of(),
+                DOWNLOAD_URL_TTL.toSeconds(), Instant.now());
+
+        response.setStatus(HttpServletResponse.SC_FOUND);
+        response.setHeader(HttpHeaders.LOCATION, url.toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, REDIRECT_CACHE_CONTROL);
+    }
+
+    /**
+     * Presigned PUT: Content-Type và Content-Length nằm trong chữ ký → request PUT
+     * phải gửi đúng 2 header đã khai báo (object được lưu với Content-Type ảnh, đúng size byte).
+     * S3 không đọc nội dung nên bytes không được kiểm tra magic bytes như upload qua API
+     */
+    @Override
+    public PresignedUploadResponse presignUpload(String folder, String contentType, long size) {
+        validateFolder(folder);
+
+        ImageType type = ImageType.fromContentType(contentType);
+        if (type == null) {
+            throw new BadRequestException("File must be a JPEG, PNG, GIF, WEBP or HEIC image");
+        }
+        if (size <= 0 || size > MAX_IMAGE_BYTES) {
+            throw new BadRequestException("File size must be less than 10MB");
+        }
+
+        String key = folder + "/" + StorageService.shardedName(UUID.randomUUID().toString(), type);
+        Map<String, String> headers = Map.of(
+                HttpHeaders.CONTENT_TYPE, type.contentType(),
+                HttpHeaders.CONTENT_LENGTH, Long.toString(size));
+
+        Instant now = Instant.now();
+        URI uploadUrl = signer.presign("PUT", objectUri(key), headers, UPLOAD_URL_TTL.toSeconds(), now);
+
+        return PresignedUploadResponse.builder()
+                .uploadUrl(uploadUrl.toString())
+                .method("PUT")
+                .headers(headers)
+                .path(key)
+                .url("/v1/files/" + key)
+                .expiresAt(now.plus(UPLOAD_URL_TTL))
+                .build();
+    }
+
+    @Override
+    public void deleteImage(String relativePath) {
+        validateKey(relativePath);
+        try {
+            HttpResponse<Void> response = send("DELETE", relativePath, Map.of(),
+                    HttpRequest.BodyPublishers.noBody());
+            if (response.statusCode() / 100 != 2 && response.statusCode() != 404) {
+                log.error("❌ Failed to delete image {}: HTTP {}", relativePath, response.statusCode());
+                return;
+            }
+            log.info("✅ Deleted image: {}", relativePath);
+        } catch (IOException e) {
+            log.error("❌ Failed to delete image: {}", relativePath, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean exists(String relativePath) {
+        validateKey(relativePath);
+        try {
+            return send("HEAD", relativePath, Map.of(), HttpRequest.BodyPublishers.noBody())
+                    .statusCode() == 200;
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to check image {}: {}", relativePath, e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private void putObject(String key, Path file, String contentType) throws IOException, InterruptedException {
+        HttpResponse<Void> response = send("PUT", key,
+                Map.of(HttpHeaders.CONTENT_TYPE, contentType),
+                HttpRequest.BodyPublishers.ofFile(file));
+
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("S3 PUT " + key + " failed: HTTP " + response.statusCode());
+        }
+    }
+
+    private HttpResponse<Void> send(String method, String key, Map<String, String> headers,
+            HttpRequest.BodyPublisher body) throws IOException, InterruptedException {
+        URI uri = objectUri(key);
+        Map<String, String> signed = signer.authorize(method, uri, headers, AwsSigV4.UNSIGNED_PAYLOAD, Instant.now());
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .method(method, body);
+        signed.forEach(request::header);
+
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private URI objectUri(String key) {
+        String encodedKey = AwsSigV4.encode(key, false);
+        if (pathStyle) {
+            return URI.create(endpoint + "/" + bucket + "/" + encodedKey);
+        }
+        return URI.create(endpoint.getScheme() + "://" + bucket + "." + endpoint.getRawAuthority() + "/" + encodedKey);
+    }
+
+    /**
+     * Copy tối đa limit byte, vượt quá thì báo lỗi (không đọc hết stream)
+     */
+    private long copyLimited(InputStream in, OutputStream out, long limit) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long copied = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            copied += read;
+            if (copied > limit) {
+                throw new BadRequestException("File size must be less than 10MB");
+            }
+            out.write(buffer, 0, read);
+        }
+        return copied;
+    }
+
+    private void validateFolder(String folder) {
+        if (folder == null || !FOLDER_PATTERN.matcher(folder).matches()) {
+            throw new BadRequestException("Invalid folder: " + folder);
+        }
+    }
+
+    private void validateKey(String key) {
+        if (key == null || key.isBlank() || key.startsWith("/") || key.contains("..")) {
+            throw new BadRequestException("Invalid path: " + key);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.dto.PresignedUploadResponse;
+import com.helpme.backend.service.ImageVariantService.Variant;
+import com.helpme.backend.util.ImageType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Lưu trữ ảnh upload
+ *
+ * Chọn implementation bằng file.storage-type:
+ * - local (mặc định): LocalStorageService, ghi vào upload-dir của node
+ * - s3: S3StorageService, object storage S3-compatible, client upload/download
+ *   trực tiếp bằng presigned URL
+ */
+public interface StorageService {
+
+    long MAX_IMAGE_BYTES = 10L * 1024 * 1024;
+
+    int MAX_PARALLEL_UPLOADS = 4;
+
+    String FILE_URL_PREFIX = "/v1/files/";
+
+    /**
+     * Kết quả lưu 1 ảnh: path tương đối, loại ảnh (theo magic bytes), số byte đã ghi
+     * và thời gian xử lý
+     */
+    record StoredImage(String path, ImageType type, long size, long durationMs) {
+
+        public String filename() {
+            return path.substring(path.lastIndexOf('/') + 1);
+        }
+    }
+
+    /**
+     * Lưu 1 file ảnh, trả về đầy đủ thông tin (type, size, thời gian xử lý)
+     */
+    StoredImage store(MultipartFile file, String folder);
+
+    /**
+     * Lưu ảnh từ stream (vd: body của request upload raw)
+     */
+    StoredImage saveImage(InputStream in, String folder);
+
+    /**
+     * Lưu 1 file ảnh
+     *
+     * @return Relative path để lưu DB (vd: "orders/ab/cd/abcd-123.jpg")
+     */
+    default String saveImage(MultipartFile file, String folder) {
+        return store(file, folder).path();
+    }
+
+    /**
+     * Ghi ảnh ra response: local stream file, S3 redirect tới presigned URL
+     *
+     * @param variant Bản resize (null = bản gốc)
+     */
+    void serveImage(String relativePath, Variant variant,
+            HttpServletRequest request, HttpServletResponse response) throws IOException;
+
+    /**
+     * Cấp URL để client upload thẳng lên storage (không đi qua API node)
+     */
+    PresignedUploadResponse presignUpload(String folder, String contentType, long size);
+
+    /**
+     * Xóa file
+     */
+    void deleteImage(String relativePath);
+
+    /**
+     * Kiểm tra file có tồn tại không
+     */
+    boolean exists(String relativePath);
+
+    /**
+     * Tên file chia 2 cấp thư mục theo 4 ký tự đầu (hex): "ab/cd/abcd....jpg"
+     * → mỗi thư mục / prefix chỉ chứa 1/65536 số file
+     */
+    static String shardedName(String name, ImageType type) {
+        return name.substring(0, 2) + "/" + name.substring(2, 4) + "/" + name + type.extension();
+    }
+
+    /**
+     * Chuẩn hóa URL ảnh của mình do client gửi lên về dạng "/v1/files/<path>"
+     * (bỏ scheme/host/prefix và query như ?size=thumb) để orphan GC đối chiếu được.
+     * URL không trỏ vào /v1/files/ giữ nguyên.
+     */
+    static String normalizeFileUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        int start = url.indexOf(FILE_URL_PREFIX);
+        if (start < 0) {
+            return url;
+        }
+        int end = url.length();
+        for (char terminator : new char[] { '?', '#' }) {
+            int index = url.indexOf(terminator, start);
+            if (index >= 0 && index < end) {
+                end = index;
+            }
+        }
+        return url.substring(start, end);
+    }
+
+    /**
+     * Lưu nhiều files song song trên virtual threads (tối đa MAX_PARALLEL_UPLOADS
+     * file cùng lúc cho 1 request)
+     *
+     * All-or-nothing: 1 file lỗi → xóa các file đã lưu của request và ném lỗi đầu tiên.
+     * Với file.content-addressed=true, deleteImage không xóa blob (có thể đang được
+     * order khác dùng): blob nằm lại trên disk tới khi OrphanFileCollector chạy,
+     * mà GC này mặc định tắt (file.gc.enabled=false)
+     *
+     * @return Kết quả theo đúng thứ tự của files
+     */
+    default List<StoredImage> saveMultipleImages(List<MultipartFile> files, String folder) {
+        Semaphore permits = new Semaphore(MAX_PARALLEL_UPLOADS);
+        List<Future<StoredImage>> futures = new ArrayList<>(files.size());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (MultipartFile file : files) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return store(file, folder);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        } // close() chờ mọi task xong
+
+        List<StoredImage> stored = new ArrayList<>(files.size());
+        RuntimeException failure = null;
+        for (Future<StoredImage> future : futures) {
+            try {
+                stored.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException runtime
+                            ? runtime
+                            : new RuntimeException("Failed to save image: " + e.getCause().getMessage(), e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = new RuntimeException("Upload interrupted", e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            stored.forEach(image -> deleteImage(image.path()));
+            throw failure;
+        }
+        return stored;
+    }
+}
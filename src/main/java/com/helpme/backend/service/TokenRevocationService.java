@@ -0,0 +1,135 @@
+// service/TokenRevocationService.java
+package com.helpme.backend.service;
+
+import com.helpme.backend.entity.RevokedToken;
+import com.helpme.backend.repository.RevokedTokenRepository;
+import com.helpme.backend.util.BloomFilter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Danh sách access token (jti) đã bị revoke, giữ trong memory
+ *
+ * - Request path: bloom filter -> exact set, không query DB
+ * - Sync định kỳ từ bảng revoked_tokens (bắt revoke từ node khác)
+ * - Entry tự hết hạn khi access token hết hạn
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationService {
+
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+    private static final long MIN_EXPECTED_REVOCATIONS = 10_000;
+    private static final long SYNC_OVERLAP_SECONDS = 5; // bù lệch clock giữa các node
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    // jti -> expiresAt (epoch millis)
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter = BloomFilter.create(MIN_EXPECTED_REVOCATIONS, FALSE_POSITIVE_RATE);
+    private volatile LocalDateTime lastSyncAt = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    /**
+     * Kiểm tra token đã bị revoke chưa - O(1), không query DB
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null || !filter.mightContain(jti)) {
+            return false;
+        }
+        return revoked.containsKey(jti);
+    }
+
+    /**
+     * Revoke access token (logout)
+     */
+    @Transactional
+    public void revoke(String jti, UUID userId, LocalDateTime expiresAt) {
+        if (jti == null) {
+            return;
+        }
+
+        revokedTokenRepository.save(RevokedToken.builder()
+                .jti(jti)
+                .userId(userId)
+                .expiresAt(expiresAt)
+                .revokedAt(LocalDateTime.now())
+                .build());
+
+        addLocal(jti, expiresAt);
+        log.info("🔒 Revoked access token {} of user {}", jti, userId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        sync();
+    }
+
+    /**
+     * Sync revoke mới từ DB (mỗi 30 giây)
+     */
+    @Scheduled(fixedRate = 30000, initialDelay = 30000)
+    public void sync() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<RevokedToken> tokens = revokedTokenRepository.findRevokedSince(
+                    lastSyncAt.minusSeconds(SYNC_OVERLAP_SECONDS),
+                    now);
+
+            tokens.forEach(token -> addLocal(token.getJti(), token.getExpiresAt()));
+            lastSyncAt = now;
+
+            if (!tokens.isEmpty()) {
+                log.debug("🔒 Synced {} revoked tokens", tokens.size());
+            }
+        } catch (Exception e) {
+            log.error("❌ Failed to sync revoked tokens: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Dọn entries đã hết hạn và rebuild bloom filter (mỗi giờ)
+     */
+    @Scheduled(fixedRate = 3600000, initialDelay = 3600000)
+    @Transactional
+    public void purgeExpired() {
+        long nowMillis = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt < nowMillis);
+
+        BloomFilter rebuilt = BloomFilter.create(
+                Math.max(MIN_EXPECTED_REVOCATIONS, revoked.size() * 2L),
+                FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+        // revoke xảy ra trong lúc rebuild -> add lại vào filter mới
+        revoked.keySet().forEach(rebuilt::put);
+
+        int deleted = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        log.info("🧹 Revocation set rebuilt: {} active, {} expired rows deleted", revoked.size(), deleted);
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private void addLocal(String jti, LocalDateTime expiresAt) {
+        long expiresAtMillis = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        revoked.put(jti, expiresAtMillis);
+        filter.put(jti);
+    }
+}
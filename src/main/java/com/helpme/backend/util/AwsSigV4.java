@@ -0,0 +1,183 @@
+package com.helpme.backend.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Ký request S3 theo AWS Signature Version 4 (không cần AWS SDK)
+ *
+ * Dùng được với AWS S3 và các storage S3-compatible (MinIO, R2...):
+ * - presign(): URL có chữ ký trong query string cho client upload/download trực tiếp
+ * - authorize(): header Authorization cho request server → S3
+ */
+public final class AwsSigV4 {
+
+    public static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SERVICE = "s3";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter
+            .ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter SCOPE_DATE = DateTimeFormatter
+            .ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+
+    public AwsSigV4(String region, String accessKey, String secretKey) {
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+    }
+
+    /**
+     * Tạo presigned URL
+     *
+     * @param headers Header client bắt buộc gửi đúng giá trị (ngoài host), vd: content-type
+     */
+    public URI presign(String method, URI uri, Map<String, String> headers, long expiresSeconds, Instant now) {
+        String amzDate = AMZ_DATE.format(now);
+        String scope = scope(now);
+
+        Map<String, String> signedHeaders = canonicalHeaders(uri, headers);
+
+        Map<String, String> query = new TreeMap<>();
+        query.put("X-Amz-Algorithm", ALGORITHM);
+        query.put("X-Amz-Credential", accessKey + "/" + scope);
+        query.put("X-Amz-Date", amzDate);
+        query.put("X-Amz-Expires", Long.toString(expiresSeconds));
+        query.put("X-Amz-SignedHeaders", String.join(";", signedHeaders.keySet()));
+
+        String canonicalQuery = canonicalQuery(query);
+        String signature = sign(now, amzDate, scope,
+                canonicalRequest(method, uri, canonicalQuery, signedHeaders, UNSIGNED_PAYLOAD));
+
+        return URI.create(uri.getScheme() + "://" + uri.getRawAuthority() + uri.getRawPath()
+                + "?" + canonicalQuery + "&X-Amz-Signature=" + signature);
+    }
+
+    /**
+     * Tạo các header cần gửi kèm request đã ký (x-amz-date, x-amz-content-sha256, authorization)
+     *
+     * @param headers     Header sẽ gửi (ngoài host), được đưa vào chữ ký
+     * @param payloadHash SHA-256 hex của body, hoặc UNSIGNED_PAYLOAD
+     */
+    public Map<String, String> authorize(String method, URI uri, Map<String, String> headers,
+            String payloadHash, Instant now) {
+        String amzDate = AMZ_DATE.format(now);
+        String scope = scope(now);
+
+        Map<String, String> all = new TreeMap<>(headers);
+        all.put("x-amz-date", amzDate);
+        all.put("x-amz-content-sha256", payloadHash);
+        Map<String, String> signedHeaders = canonicalHeaders(uri, all);
+
+        String signature = sign(now, amzDate, scope,
+                canonicalRequest(method, uri, canonicalQuery(Map.of()), signedHeaders, payloadHash));
+
+        Map<String, String> result = new TreeMap<>(all);
+        result.put("Authorization", ALGORITHM
+                + " Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + String.join(";", signedHeaders.keySet())
+                + ", Signature=" + signature);
+        return result;
+    }
+
+    /**
+     * URI-encode theo quy tắc của SigV4 (RFC 3986, giữ lại '/' nếu encodeSlash = false)
+     */
+    public static String encode(String value, boolean encodeSlash) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (c == '/' && !encodeSlash)) {
+                result.append(c);
+            } else {
+                result.append('%').append(String.format("%02X", b & 0xFF));
+            }
+        }
+        return result.toString();
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private String scope(Instant now) {
+        return SCOPE_DATE.format(now) + "/" + region + "/" + SERVICE + "/aws4_request";
+    }
+
+    /**
+     * Header đã chuẩn hóa (tên lowercase, giá trị trim), sắp xếp theo tên, luôn có host
+     */
+    private Map<String, String> canonicalHeaders(URI uri, Map<String, String> headers) {
+        Map<String, String> canonical = new TreeMap<>();
+        canonical.put("host", uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort());
+        headers.forEach((name, value) -> canonical.put(name.toLowerCase(Locale.ROOT), value.trim()));
+        return canonical;
+    }
+
+    private String canonicalQuery(Map<String, String> query) {
+        return new TreeMap<>(query).entrySet().stream()
+                .map(entry -> encode(entry.getKey(), true) + "=" + encode(entry.getValue(), true))
+                .collect(Collectors.joining("&"));
+    }
+
+    private String canonicalRequest(String method, URI uri, String canonicalQuery,
+            Map<String, String> signedHeaders, String payloadHash) {
+        StringBuilder headers = new StringBuilder();
+        signedHeaders.forEach((name, value) -> headers.append(name).append(':').append(value).append('\n'));
+
+        return method + "\n"
+                + uri.getRawPath() + "\n"
+                + canonicalQuery + "\n"
+                + headers + "\n"
+                + String.join(";", signedHeaders.keySet()) + "\n"
+                + payloadHash;
+    }
+
+    private String sign(Instant now, String amzDate, String scope, String canonicalRequest) {
+        String stringToSign = ALGORITHM + "\n"
+                + amzDate + "\n"
+                + scope + "\n"
+                + sha256Hex(canonicalRequest);
+
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), SCOPE_DATE.format(now));
+        key = hmac(key, region);
+        key = hmac(key, SERVICE);
+        key = hmac(key, "aws4_request");
+
+        return HexFormat.of().formatHex(hmac(key, stringToSign));
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static String sha256Hex(String data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
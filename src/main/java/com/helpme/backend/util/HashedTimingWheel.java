@@ -0,0 +1,179 @@
+package com.helpme.backend.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Hashed timing wheel: schedule/cancel O(1), 1 thread tick cố định.
+ * Deadline xa hơn 1 vòng wheel được xử lý bằng remainingRounds.
+ *
+ * Mỗi timeout có key duy nhất: schedule lại cùng key sẽ thay thế timeout cũ.
+ * Task được chạy trên executor riêng, không block thread tick.
+ */
+@Slf4j
+public class HashedTimingWheel {
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<List<Timeout>> wheel;
+    private final Executor taskExecutor;
+
+    private final Map<String, Timeout> timeouts = new ConcurrentHashMap<>();
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Thread workerThread;
+    private volatile long startTime;
+    private volatile boolean running;
+    private long tick;
+
+    /**
+     * @param tickMillis   Độ chính xác của wheel
+     * @param wheelSize    Số bucket (làm tròn lên lũy thừa của 2)
+     * @param taskExecutor Executor chạy callback khi hết hạn
+     */
+    public HashedTimingWheel(String name, long tickMillis, int wheelSize, Executor taskExecutor) {
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.taskExecutor = taskExecutor;
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new ArrayList<>());
+        }
+
+        this.workerThread = new Thread(this::run, name);
+        this.workerThread.setDaemon(true);
+    }
+
+    public void start() {
+        startTime = System.currentTimeMillis();
+        running = true;
+        workerThread.start();
+    }
+
+    public void stop() {
+        running = false;
+        workerThread.interrupt();
+    }
+
+    /**
+     * Schedule task chạy tại deadline (epoch millis), thay thế timeout cũ cùng key
+     */
+    public void schedule(String key, long deadlineMillis, Runnable task) {
+        Timeout timeout = new Timeout(key, deadlineMillis, task);
+        Timeout previous = timeouts.put(key, timeout);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        pendingTimeouts.add(timeout);
+    }
+
+    public void cancel(String key) {
+        Timeout timeout = timeouts.remove(key);
+        if (timeout != null) {
+            timeout.cancelled = true;
+        }
+    }
+
+    public boolean contains(String key) {
+        return timeouts.containsKey(key);
+    }
+
+    public int size() {
+        return timeouts.size();
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private void run() {
+        while (running) {
+            long tickDeadline = startTime + (tick + 1) * tickMillis;
+            long sleepMillis = tickDeadline - System.currentTimeMillis();
+
+            if (sleepMillis > 0) {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                }
+                continue;
+            }
+
+            transferPendingTimeouts();
+            expireTimeouts(wheel.get((int) (tick & mask)), tickDeadline);
+            tick++;
+        }
+    }
+
+    private void transferPendingTimeouts() {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+
+            long calculated = Math.max(0, (timeout.deadline - startTime) / tickMillis);
+            timeout.remainingRounds = (calculated - tick) / wheel.size();
+
+            long ticks = Math.max(calculated, tick); // Deadline đã qua -> chạy ở tick hiện tại
+            wheel.get((int) (ticks & mask)).add(timeout);
+        }
+    }
+
+    private void expireTimeouts(List<Timeout> bucket, long tickDeadline) {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+
+            if (timeout.cancelled) {
+                iterator.remove();
+            } else if (timeout.remainingRounds <= 0) {
+                iterator.remove();
+                if (timeout.deadline <= tickDeadline) {
+                    expire(timeout);
+                } else {
+                    pendingTimeouts.add(timeout);
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+
+    private void expire(Timeout timeout) {
+        if (!timeouts.remove(timeout.key, timeout)) {
+            return; // Đã bị cancel hoặc thay thế
+        }
+
+        try {
+            taskExecutor.execute(timeout.task);
+        } catch (Exception e) {
+            log.error("❌ Failed to run timeout {}: {}", timeout.key, e.getMessage());
+        }
+    }
+
+    private static final class Timeout {
+        private final String key;
+        private final long deadline;
+        private final Runnable task;
+        private volatile boolean cancelled;
+        private long remainingRounds;
+
+        private Timeout(String key, long deadline, Runnable task) {
+            this.key = key;
+            this.deadline = deadline;
+            this.task = task;
+        }
+    }
+}
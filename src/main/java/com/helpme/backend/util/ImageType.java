@@ -0,0 +1,116 @@
+package com.helpme.backend.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loại ảnh được chấp nhận khi upload, nhận diện bằng magic bytes ở đầu file
+ * (không tin Content-Type / tên file do client gửi lên).
+ */
+public enum ImageType {
+
+    JPEG("image/jpeg", ".jpg"),
+    PNG("image/png", ".png"),
+    GIF("image/gif", ".gif"),
+    WEBP("image/webp", ".webp"),
+    HEIC("image/heic", ".heic");
+
+    /**
+     * Số byte đầu tiên cần đọc để nhận diện mọi loại ở trên
+     */
+    public static final int HEADER_BYTES = 16;
+
+    private static final byte[] JPEG_MAGIC = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF };
+    private static final byte[] PNG_MAGIC = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    private static final byte[] GIF87_MAGIC = ascii("GIF87a");
+    private static final byte[] GIF89_MAGIC = ascii("GIF89a");
+    private static final byte[] RIFF_MAGIC = ascii("RIFF");
+    private static final byte[] WEBP_MAGIC = ascii("WEBP");
+    private static final byte[] FTYP_MAGIC = ascii("ftyp");
+    private static final byte[][] HEIC_BRANDS = { ascii("heic"), ascii("heix"), ascii("mif1"), ascii("msf1") };
+
+    private final String contentType;
+    private final String extension;
+
+    ImageType(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * Nhận diện loại ảnh từ block đầu tiên (position → limit của buffer)
+     *
+     * @return null nếu không phải ảnh được hỗ trợ
+     */
+    public static ImageType detect(ByteBuffer header) {
+        if (startsWith(header, 0, JPEG_MAGIC)) {
+            return JPEG;
+        }
+        if (startsWith(header, 0, PNG_MAGIC)) {
+            return PNG;
+        }
+        if (startsWith(header, 0, GIF87_MAGIC) || startsWith(header, 0, GIF89_MAGIC)) {
+            return GIF;
+        }
+        if (startsWith(header, 0, RIFF_MAGIC) && startsWith(header, 8, WEBP_MAGIC)) {
+            return WEBP;
+        }
+        if (startsWith(header, 4, FTYP_MAGIC)) {
+            for (byte[] brand : HEIC_BRANDS) {
+                if (startsWith(header, 8, brand)) {
+                    return HEIC;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tìm loại ảnh theo phần mở rộng đã lưu (vd: ".jpg"), null nếu không khớp
+     */
+    public static ImageType fromExtension(String extension) {
+        for (ImageType type : values()) {
+            if (type.extension.equalsIgnoreCase(extension)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tìm loại ảnh theo Content-Type (vd: "image/png"), null nếu không hỗ trợ
+     */
+    public static ImageType fromContentType(String contentType) {
+        for (ImageType type : values()) {
+            if (type.contentType.equalsIgnoreCase(contentType)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int offset, byte[] magic) {
+        int start = buffer.position() + offset;
+        if (buffer.limit() - start < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (buffer.get(start + i) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,55 @@
+package com.helpme.backend.util;
+
+import com.helpme.backend.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Cursor cho keyset pagination theo (created_at, id) giảm dần.
+ * Encode dạng base64url của "createdAt|id" để client coi như opaque string.
+ */
+public record KeysetCursor(LocalDateTime createdAt, UUID id) {
+
+    /**
+     * Cursor "trước mọi bản ghi" - dùng cho trang đầu tiên
+     * Không có cận dưới (lịch sử không giới hạn thời gian): planner đi index
+     * (…, created_at DESC, id DESC) và dừng sau LIMIT bản ghi
+     */
+    public static final KeysetCursor FIRST = new KeysetCursor(
+            LocalDateTime.of(9999, 12, 31, 23, 59, 59),
+            new UUID(-1L, -1L));
+
+    /**
+     * Thứ tự UUID giống Postgres (so sánh unsigned từng byte), dùng khi merge
+     * các trang keyset từ nhiều bảng trong memory
+     */
+    public static final Comparator<UUID> UUID_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new KeysetCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
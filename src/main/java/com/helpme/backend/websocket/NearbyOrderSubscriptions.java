@@ -0,0 +1,174 @@
+package com.helpme.backend.websocket;
+
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.SocketIOServer;
+import com.helpme.backend.entity.Provider;
+import com.helpme.backend.entity.UserRole;
+import com.helpme.backend.repository.ProviderRepository;
+import com.helpme.backend.security.JwtUtil;
+import com.helpme.backend.service.BroadcastingOrderIndex;
+import com.helpme.backend.service.BroadcastingOrderIndex.BroadcastingOrder;
+import com.helpme.backend.service.BroadcastingOrderIndex.Change;
+import com.helpme.backend.service.ProviderService;
+import com.helpme.backend.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Socket subscription cho delta feed orders gần provider:
+ * - Client emit "subscribe_nearby" {lat, lng, radius} / "unsubscribe_nearby"
+ *   (chỉ provider đang online, xác thực bằng JWT gửi lúc handshake:
+ *   header "Authorization: Bearer ..." hoặc query param "token")
+ * - Server push "nearby_order_added" (OrderDTO) và "nearby_order_removed" {orderId}
+ *   kèm cursor, tương ứng với GET /v1/provider/orders/nearby/changes
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NearbyOrderSubscriptions {
+
+    private static final int DEFAULT_RADIUS = 10000;
+
+    private final SocketIOServer server;
+    private final BroadcastingOrderIndex broadcastingOrderIndex;
+    private final ProviderRepository providerRepository;
+    private final JwtUtil jwtUtil;
+    private final TokenRevocationService tokenRevocationService;
+
+    @Value("${orders.broadcast-window-hours:0}")
+    private int broadcastWindowHours;
+
+    // Map: sessionId -> khu vực đã subscribe
+    private final Map<UUID, Area> subscriptions = new ConcurrentHashMap<>();
+
+    private record Area(UUID providerId, double lat, double lng, int radius) {
+    }
+
+    @PostConstruct
+    public void register() {
+        server.addEventListener("subscribe_nearby", Map.class, (client, data, ackSender) -> {
+            UUID providerId = authenticateOnlineProvider(client);
+            if (providerId == null) {
+                log.warn("❌ Rejected subscribe_nearby from unauthenticated session {}", client.getSessionId());
+                if (ackSender.isAckRequested()) {
+                    ackSender.sendAckData(Map.of("error", "UNAUTHORIZED"));
+                }
+                return;
+            }
+
+            Area area = parseArea(providerId, data);
+            if (area == null) {
+                log.warn("⚠️ Invalid subscribe_nearby payload from {}", client.getSessionId());
+                return;
+            }
+
+            subscriptions.put(client.getSessionId(), area);
+            if (ackSender.isAckRequested()) {
+                ackSender.sendAckData(Map.of("cursor", broadcastingOrderIndex.currentCursor()));
+            }
+            log.debug("📍 Session {} subscribed to nearby orders {}", client.getSessionId(), area);
+        });
+
+        server.addEventListener("unsubscribe_nearby", Map.class,
+                (client, data, ackSender) -> subscriptions.remove(client.getSessionId()));
+
+        server.addDisconnectListener(client -> subscriptions.remove(client.getSessionId()));
+
+        broadcastingOrderIndex.addChangeListener(this::onChange);
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private void onChange(Change change) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+
+        BroadcastingOrder order = change.order();
+        if (broadcastWindowHours > 0 && order.createdAt() != null
+                && order.createdAt().isBefore(LocalDateTime.now().minusHours(broadcastWindowHours))) {
+            return;
+        }
+
+        String cursor = broadcastingOrderIndex.cursorOf(change.sequence());
+
+        subscriptions.forEach((sessionId, area) -> {
+            double distance = order.distanceTo(area.lat(), area.lng());
+            if (distance > area.radius()) {
+                return;
+            }
+
+            SocketIOClient client = server.getClient(sessionId);
+            if (client == null) {
+                subscriptions.remove(sessionId);
+                return;
+            }
+
+            if (change.added()) {
+                client.sendEvent("nearby_order_added", Map.of(
+                        "cursor", cursor,
+                        "order", order.toDTO(distance)));
+            } else {
+                client.sendEvent("nearby_order_removed", Map.of(
+                        "cursor", cursor,
+                        "orderId", order.id()));
+            }
+        });
+    }
+
+    /**
+     * Xác thực session bằng JWT lúc handshake, trả về providerId nếu là provider đang online
+     */
+    private UUID authenticateOnlineProvider(SocketIOClient client) {
+        String token = handshakeToken(client);
+        if (token == null) {
+            return null;
+        }
+
+        Claims claims = jwtUtil.parseValidClaims(token);
+        if (claims == null || tokenRevocationService.isRevoked(claims.getId())
+                || !UserRole.PROVIDER.name().equals(claims.get("role", String.class))) {
+            return null;
+        }
+
+        String userId = claims.get("userId", String.class);
+        if (userId == null) {
+            return null;
+        }
+
+        try {
+            return providerRepository.findById(UUID.fromString(userId))
+                    .filter(provider -> Boolean.TRUE.equals(provider.getIsOnline()))
+                    .map(Provider::getId)
+                    .orElse(null);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String handshakeToken(SocketIOClient client) {
+        String authHeader = client.getHandshakeData().getHttpHeaders().get("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7);
+        }
+        return client.getHandshakeData().getSingleUrlParam("token");
+    }
+
+    private Area parseArea(UUID providerId, Map<?, ?> data) {
+        if (data == null || !(data.get("lat") instanceof Number lat) || !(data.get("lng") instanceof Number lng)) {
+            return null;
+        }
+
+        int radius = data.get("radius") instanceof Number r ? r.intValue() : DEFAULT_RADIUS;
+        return new Area(providerId, lat.doubleValue(), lng.doubleValue(), ProviderService.clampNearbyRadius(radius));
+    }
+}
@@ -0,0 +1,37 @@
+package com.helpme.backend.websocket;
+
+import com.helpme.backend.event.OrderStatusChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+
+/**
+ * Gửi socket event "order_status_changed" tới driver và provider
+ * sau khi transition đã commit
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatusNotifier {
+
+    private final SocketIOService socketService;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        Map<String, Object> payload = Map.of(
+                "orderId", event.orderId(),
+                "from", event.from(),
+                "to", event.to());
+
+        if (event.driverId() != null) {
+            socketService.emitToUser(event.driverId(), "order_status_changed", payload);
+        }
+        if (event.providerId() != null) {
+            socketService.emitToUser(event.providerId(), "order_status_changed", payload);
+        }
+    }
+}
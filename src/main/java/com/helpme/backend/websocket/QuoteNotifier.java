@@ -0,0 +1,22 @@
+package com.helpme.backend.websocket;
+
+import com.helpme.backend.event.QuoteCreatedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Gửi socket event "new_quote_received" tới driver sau khi quote đã commit
+ */
+@Component
+@RequiredArgsConstructor
+public class QuoteNotifier {
+
+    private final SocketIOService socketService;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onQuoteCreated(QuoteCreatedEvent event) {
+        socketService.emitToUser(event.driverId(), "new_quote_received", event.quote());
+    }
+}
@@ -0,0 +1,11 @@
+-- V10__add_order_history_indexes.sql
+-- Composite indexes cho keyset pagination của lịch sử orders:
+-- WHERE driver_id = ? AND (created_at, id) < (?, ?) ORDER BY created_at DESC, id DESC
+
+CREATE INDEX idx_orders_driver_created_id ON orders(driver_id, created_at DESC, id DESC);
+CREATE INDEX idx_orders_provider_created_id ON orders(provider_id, created_at DESC, id DESC)
+    WHERE provider_id IS NOT NULL;
+
+-- Index đơn cột đã được cover bởi prefix của composite index
+DROP INDEX IF EXISTS idx_orders_driver_id;
+DROP INDEX IF EXISTS idx_orders_provider_id;
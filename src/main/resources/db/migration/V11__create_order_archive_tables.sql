@@ -0,0 +1,84 @@
+-- V11__create_order_archive_tables.sql
+-- Bảng archive cho orders đã COMPLETED/CANCELLED lâu ngày và dữ liệu con (quotes, add_ons).
+-- Partition theo tháng của archived_at để có thể DROP cả partition khi hết hạn lưu trữ.
+
+-- Tạo partition theo tháng nếu chưa có, trả về tên partition
+CREATE OR REPLACE FUNCTION ensure_monthly_partition(parent TEXT, month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    from_date DATE := date_trunc('month', month_start)::DATE;
+    partition_name TEXT := parent || '_' || to_char(from_date, 'YYYY_MM');
+BEGIN
+    EXECUTE format(
+        'CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+        partition_name, parent, from_date, (from_date + INTERVAL '1 month')::DATE);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TABLE orders_archive (
+    id UUID NOT NULL,
+    driver_id UUID NOT NULL,
+    provider_id UUID,
+    status VARCHAR(20),
+    service_type VARCHAR(50),
+    pickup_location GEOGRAPHY(POINT, 4326),
+    description TEXT,
+    media_urls JSONB,
+    final_amount DECIMAL(10,2),
+    broadcast_radius INT,
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (id, archived_at)
+) PARTITION BY RANGE (archived_at);
+
+CREATE TABLE quotes_archive (
+    id UUID NOT NULL,
+    order_id UUID NOT NULL,
+    provider_id UUID NOT NULL,
+    status VARCHAR(20),
+    base_price DECIMAL(10,2),
+    distance_price DECIMAL(10,2),
+    material_price DECIMAL(10,2),
+    total_est DECIMAL(10,2),
+    location_source VARCHAR(10),
+    eta_minutes INT,
+    notes TEXT,
+    created_at TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (id, archived_at)
+) PARTITION BY RANGE (archived_at);
+
+CREATE TABLE add_ons_archive (
+    id UUID NOT NULL,
+    order_id UUID NOT NULL,
+    reason_code VARCHAR(50),
+    reason_text TEXT,
+    amount DECIMAL(10,2),
+    status VARCHAR(20),
+    evidence_image TEXT,
+    created_at TIMESTAMP,
+    approved_at TIMESTAMP,
+    rejected_at TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (id, archived_at)
+) PARTITION BY RANGE (archived_at);
+
+CREATE INDEX idx_orders_archive_driver_id ON orders_archive(driver_id);
+CREATE INDEX idx_orders_archive_provider_id ON orders_archive(provider_id);
+CREATE INDEX idx_quotes_archive_order_id ON quotes_archive(order_id);
+CREATE INDEX idx_add_ons_archive_order_id ON add_ons_archive(order_id);
+
+-- Partition tháng hiện tại và tháng sau (job archive tự tạo các tháng tiếp theo)
+SELECT ensure_monthly_partition(t.parent, m.month_start)
+FROM (VALUES ('orders_archive'), ('quotes_archive'), ('add_ons_archive')) AS t(parent),
+     (VALUES (CURRENT_DATE), ((CURRENT_DATE + INTERVAL '1 month')::DATE)) AS m(month_start);
+
+-- Index cho việc chọn batch archive: chỉ chứa orders đã kết thúc
+CREATE INDEX idx_orders_finished_updated_at ON orders(updated_at)
+    WHERE status IN ('COMPLETED', 'CANCELLED');
+
+COMMENT ON TABLE orders_archive IS 'Orders COMPLETED/CANCELLED đã được chuyển khỏi bảng orders (partition theo tháng archive)';
+COMMENT ON TABLE quotes_archive IS 'Quotes của các orders đã archive';
+COMMENT ON TABLE add_ons_archive IS 'Add-ons của các orders đã archive';
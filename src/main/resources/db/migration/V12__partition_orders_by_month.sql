@@ -0,0 +1,93 @@
+-- V12__partition_orders_by_month.sql
+-- Chuyển bảng orders sang range partition theo tháng của created_at.
+-- Query có điều kiện created_at sẽ chỉ quét các partition liên quan (partition pruning),
+-- kết hợp với job archive (V11) thì số partition "nóng" luôn nhỏ.
+--
+-- Lưu ý: migration copy toàn bộ dữ liệu trong 1 transaction và giữ lock trên orders,
+-- với dữ liệu lớn nên chạy trong maintenance window.
+
+-- Chỉ tạo partition khi chưa có (tránh lấy lock trên bảng cha khi không cần)
+CREATE OR REPLACE FUNCTION ensure_monthly_partition(parent TEXT, month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    from_date DATE := date_trunc('month', month_start)::DATE;
+    partition_name TEXT := parent || '_' || to_char(from_date, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NULL THEN
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+            partition_name, parent, from_date, (from_date + INTERVAL '1 month')::DATE);
+    END IF;
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Xóa các partition theo tháng đã rỗng và kết thúc trước older_than, trả về số partition đã xóa
+CREATE OR REPLACE FUNCTION drop_empty_monthly_partitions(parent TEXT, older_than DATE)
+RETURNS INT AS $$
+DECLARE
+    part RECORD;
+    is_empty BOOLEAN;
+    dropped INT := 0;
+BEGIN
+    FOR part IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = parent::regclass
+        AND c.relname ~ ('^' || parent || '_\d{4}_\d{2}$')
+    LOOP
+        IF (to_date(right(part.relname, 7), 'YYYY_MM') + INTERVAL '1 month')::DATE <= older_than THEN
+            EXECUTE format('SELECT NOT EXISTS (SELECT 1 FROM %I)', part.relname) INTO is_empty;
+            IF is_empty THEN
+                EXECUTE format('DROP TABLE %I', part.relname);
+                dropped := dropped + 1;
+            END IF;
+        END IF;
+    END LOOP;
+    RETURN dropped;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 1. Đổi tên bảng cũ
+ALTER TABLE orders RENAME TO orders_legacy;
+
+UPDATE orders_legacy SET created_at = COALESCE(updated_at, NOW()) WHERE created_at IS NULL;
+
+-- 2. Tạo bảng partitioned (PK phải chứa partition key)
+CREATE TABLE orders (LIKE orders_legacy INCLUDING DEFAULTS INCLUDING COMMENTS)
+    PARTITION BY RANGE (created_at);
+
+ALTER TABLE orders ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE orders ADD PRIMARY KEY (id, created_at);
+
+-- 3. Tạo partition cho dữ liệu hiện có và 2 tháng tới
+DO $$
+DECLARE
+    month_start DATE;
+BEGIN
+    month_start := date_trunc('month', COALESCE((SELECT MIN(created_at) FROM orders_legacy), NOW()))::DATE;
+    WHILE month_start <= (CURRENT_DATE + INTERVAL '2 months')::DATE LOOP
+        PERFORM ensure_monthly_partition('orders', month_start);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+CREATE TABLE orders_default PARTITION OF orders DEFAULT;
+
+-- 4. Copy dữ liệu
+INSERT INTO orders SELECT * FROM orders_legacy;
+
+DROP TABLE orders_legacy;
+
+-- 5. Indexes (tự tạo trên từng partition)
+CREATE INDEX idx_orders_driver_created_id ON orders(driver_id, created_at DESC, id DESC);
+CREATE INDEX idx_orders_provider_created_id ON orders(provider_id, created_at DESC, id DESC)
+    WHERE provider_id IS NOT NULL;
+CREATE INDEX idx_orders_status ON orders(status);
+CREATE INDEX idx_orders_created_at ON orders(created_at);
+CREATE INDEX idx_orders_pickup_location ON orders USING GIST(pickup_location);
+CREATE INDEX idx_orders_finished_updated_at ON orders(updated_at)
+    WHERE status IN ('COMPLETED', 'CANCELLED');
+
+COMMENT ON TABLE orders IS 'Bảng quản lý đơn hàng cứu hộ (partition theo tháng của created_at)';
@@ -0,0 +1,50 @@
+-- V13__create_provider_rating_stats.sql
+-- Aggregate rating theo provider, cập nhật atomic khi có rating mới
+-- (thay cho AVG/GROUP BY trên bảng ratings mỗi lần đọc)
+
+CREATE TABLE provider_rating_stats (
+    provider_id UUID PRIMARY KEY,
+    rating_count BIGINT NOT NULL DEFAULT 0,
+    rating_sum BIGINT NOT NULL DEFAULT 0,
+    star_1 BIGINT NOT NULL DEFAULT 0,
+    star_2 BIGINT NOT NULL DEFAULT 0,
+    star_3 BIGINT NOT NULL DEFAULT 0,
+    star_4 BIGINT NOT NULL DEFAULT 0,
+    star_5 BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Backfill từ ratings hiện có
+INSERT INTO provider_rating_stats (provider_id, rating_count, rating_sum, star_1, star_2, star_3, star_4, star_5)
+SELECT provider_id,
+       COUNT(*),
+       SUM(rating),
+       COUNT(*) FILTER (WHERE rating = 1),
+       COUNT(*) FILTER (WHERE rating = 2),
+       COUNT(*) FILTER (WHERE rating = 3),
+       COUNT(*) FILTER (WHERE rating = 4),
+       COUNT(*) FILTER (WHERE rating = 5)
+FROM ratings
+WHERE rating IS NOT NULL
+GROUP BY provider_id;
+
+COMMENT ON TABLE provider_rating_stats IS 'Tổng hợp rating theo provider (count, sum, số lượng theo từng mức sao)';
+
+-- Ratings giờ có thể archive cùng order (stats không còn phụ thuộc bảng ratings)
+CREATE TABLE ratings_archive (
+    id UUID NOT NULL,
+    order_id UUID NOT NULL,
+    provider_id UUID NOT NULL,
+    rating INT,
+    comment TEXT,
+    created_at TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (id, archived_at)
+) PARTITION BY RANGE (archived_at);
+
+CREATE INDEX idx_ratings_archive_provider_id ON ratings_archive(provider_id);
+
+SELECT ensure_monthly_partition('ratings_archive', m.month_start)
+FROM (VALUES (CURRENT_DATE), ((CURRENT_DATE + INTERVAL '1 month')::DATE)) AS m(month_start);
+
+COMMENT ON TABLE ratings_archive IS 'Ratings của các orders đã archive';
@@ -0,0 +1,8 @@
+-- V14__add_ratings_provider_keyset_index.sql
+-- Keyset pagination ratings của provider:
+-- WHERE provider_id = ? AND (created_at, id) < (?, ?) ORDER BY created_at DESC, id DESC
+
+CREATE INDEX idx_ratings_provider_created_id ON ratings(provider_id, created_at DESC, id DESC);
+
+-- Đã được cover bởi prefix của composite index
+DROP INDEX IF EXISTS idx_ratings_provider_id;
@@ -0,0 +1,13 @@
+-- V15__create_file_blobs.sql
+-- Content-addressed storage: mỗi nội dung ảnh (SHA-256) chỉ lưu 1 file,
+-- ref_count đếm số lần được upload/tham chiếu, về 0 thì file bị xóa
+
+CREATE TABLE file_blobs (
+    hash VARCHAR(64) PRIMARY KEY,
+    path VARCHAR(255) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    content_type VARCHAR(50) NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 0 CHECK (ref_count >= 0),
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
@@ -0,0 +1,18 @@
+-- V16__add_file_reference_indexes.sql
+-- Index cho orphan GC của uploads: tra cứu theo lô xem path ảnh có còn
+-- được orders / add-ons / users tham chiếu không
+
+CREATE INDEX IF NOT EXISTS idx_orders_media_urls
+    ON orders USING GIN (media_urls jsonb_path_ops);
+
+CREATE INDEX IF NOT EXISTS idx_orders_archive_media_urls
+    ON orders_archive USING GIN (media_urls jsonb_path_ops);
+
+CREATE INDEX IF NOT EXISTS idx_add_ons_evidence_image
+    ON add_ons (evidence_image) WHERE evidence_image IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_add_ons_archive_evidence_image
+    ON add_ons_archive (evidence_image) WHERE evidence_image IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_users_avatar_url
+    ON users (avatar_url) WHERE avatar_url IS NOT NULL;
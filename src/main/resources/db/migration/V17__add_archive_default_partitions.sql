@@ -0,0 +1,16 @@
+-- V17__add_archive_default_partitions.sql
+-- Partition DEFAULT cho các bảng archive: row có archived_at nằm ngoài các tháng đã tạo trước
+-- (vd: job ensurePartitions lỗi qua đầu tháng) không làm batch archive fail.
+-- Index keyset cho lịch sử orders đã archive (/history đọc cả orders và orders_archive).
+
+CREATE TABLE IF NOT EXISTS orders_archive_default PARTITION OF orders_archive DEFAULT;
+CREATE TABLE IF NOT EXISTS quotes_archive_default PARTITION OF quotes_archive DEFAULT;
+CREATE TABLE IF NOT EXISTS add_ons_archive_default PARTITION OF add_ons_archive DEFAULT;
+CREATE TABLE IF NOT EXISTS ratings_archive_default PARTITION OF ratings_archive DEFAULT;
+
+DROP INDEX IF EXISTS idx_orders_archive_driver_id;
+DROP INDEX IF EXISTS idx_orders_archive_provider_id;
+
+CREATE INDEX idx_orders_archive_driver_created_id ON orders_archive(driver_id, created_at DESC, id DESC);
+CREATE INDEX idx_orders_archive_provider_created_id ON orders_archive(provider_id, created_at DESC, id DESC)
+    WHERE provider_id IS NOT NULL;
@@ -0,0 +1,11 @@
+-- V18__keep_ratings_in_hot_table.sql
+-- Ratings không archive cùng order nữa: trang review công khai của provider chỉ đọc bảng ratings,
+-- trong khi provider_rating_stats vẫn đếm cả ratings đã archive.
+-- Chuyển các ratings đã archive về lại bảng ratings và bỏ ratings_archive.
+
+INSERT INTO ratings (id, order_id, provider_id, rating, comment, created_at)
+SELECT id, order_id, provider_id, rating, comment, created_at
+FROM ratings_archive
+ON CONFLICT DO NOTHING;
+
+DROP TABLE ratings_archive;
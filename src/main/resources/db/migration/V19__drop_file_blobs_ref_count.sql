@@ -0,0 +1,6 @@
+-- V19__drop_file_blobs_ref_count.sql
+-- Bỏ ref_count: không có chỗ nào bớt tham chiếu khi order/add-on/avatar đổi ảnh,
+-- blob chỉ bị xóa bởi OrphanFileCollector (kiểm tra tham chiếu thật trong DB).
+-- updated_at = lần upload gần nhất của nội dung, dùng làm grace period cho GC.
+
+ALTER TABLE file_blobs DROP COLUMN IF EXISTS ref_count;
@@ -0,0 +1,40 @@
+-- V20__normalize_file_urls.sql
+-- Chuẩn hóa URL ảnh cũ do client gửi lên (vd: "https://api.example.com/v1/files/orders/x.jpg?size=thumb")
+-- về dạng "/v1/files/orders/x.jpg" để orphan GC đối chiếu đúng (file.gc.enabled chỉ nên bật sau migration này).
+-- URL không trỏ vào /v1/files/ giữ nguyên.
+
+CREATE OR REPLACE FUNCTION normalize_file_url(url TEXT) RETURNS TEXT AS $$
+    SELECT CASE
+        WHEN url LIKE '%/v1/files/%' THEN substring(url FROM '/v1/files/[^?#]*')
+        ELSE url
+    END;
+$$ LANGUAGE sql IMMUTABLE;
+
+UPDATE orders o
+SET media_urls = (
+    SELECT jsonb_agg(normalize_file_url(m.url) ORDER BY m.ord)
+    FROM jsonb_array_elements_text(o.media_urls) WITH ORDINALITY AS m(url, ord))
+WHERE jsonb_typeof(o.media_urls) = 'array'
+AND EXISTS (
+    SELECT 1 FROM jsonb_array_elements_text(o.media_urls) AS m(url)
+    WHERE normalize_file_url(m.url) <> m.url);
+
+UPDATE orders_archive o
+SET media_urls = (
+    SELECT jsonb_agg(normalize_file_url(m.url) ORDER BY m.ord)
+    FROM jsonb_array_elements_text(o.media_urls) WITH ORDINALITY AS m(url, ord))
+WHERE jsonb_typeof(o.media_urls) = 'array'
+AND EXISTS (
+    SELECT 1 FROM jsonb_array_elements_text(o.media_urls) AS m(url)
+    WHERE normalize_file_url(m.url) <> m.url);
+
+UPDATE add_ons SET evidence_image = normalize_file_url(evidence_image)
+WHERE normalize_file_url(evidence_image) <> evidence_image;
+
+UPDATE add_ons_archive SET evidence_image = normalize_file_url(evidence_image)
+WHERE normalize_file_url(evidence_image) <> evidence_image;
+
+UPDATE users SET avatar_url = normalize_file_url(avatar_url)
+WHERE normalize_file_url(avatar_url) <> avatar_url;
+
+DROP FUNCTION normalize_file_url(TEXT);
@@ -0,0 +1,12 @@
+-- V21__create_order_deadline_notifications.sql
+-- Deadline nào của order đã được nhắc (BROADCASTING quá lâu, IN_SERVICE quá lâu).
+-- Node nào insert được row thì node đó gửi push → mỗi deadline chỉ nhắc 1 lần,
+-- kể cả khi reconcile/rebuild arm lại trên nhiều node hoặc sau restart.
+-- Row bị xóa cùng lúc order được archive.
+
+CREATE TABLE order_deadline_notifications (
+    order_id UUID NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    notified_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (order_id, status)
+);
@@ -0,0 +1,13 @@
+-- V22__add_ratings_driver_id.sql
+-- Lưu driver_id trên ratings: trang review công khai join thẳng users, không phụ thuộc
+-- order còn ở bảng orders hay đã chuyển sang orders_archive (sau ~30 ngày).
+
+ALTER TABLE ratings ADD COLUMN IF NOT EXISTS driver_id UUID;
+
+UPDATE ratings r SET driver_id = o.driver_id
+FROM orders o
+WHERE o.id = r.order_id AND r.driver_id IS NULL;
+
+UPDATE ratings r SET driver_id = o.driver_id
+FROM orders_archive o
+WHERE o.id = r.order_id AND r.driver_id IS NULL;
@@ -0,0 +1,35 @@
+-- V23__unpartition_orders.sql
+-- Bỏ partition của bảng orders (V12): các query nóng (findById, transitionStatus,
+-- matchIfBroadcasting, active order của driver/provider, trang lịch sử đầu tiên, nearby)
+-- không có điều kiện created_at nên planner không prune được partition nào, lookup theo PK
+-- phải dò index của mọi partition. Job archive (V11) đã giữ orders nhỏ nên bảng thường là đủ.
+-- Các bảng *_archive vẫn partition (chỉ đọc lạnh), giữ nguyên ensure_monthly_partition.
+--
+-- Lưu ý: migration copy toàn bộ dữ liệu trong 1 transaction và giữ lock trên orders,
+-- với dữ liệu lớn nên chạy trong maintenance window.
+
+-- 1. Đổi tên bảng partitioned
+ALTER TABLE orders RENAME TO orders_partitioned;
+
+-- 2. Tạo lại bảng thường, PK chỉ còn id
+CREATE TABLE orders (LIKE orders_partitioned INCLUDING DEFAULTS INCLUDING COMMENTS);
+
+ALTER TABLE orders ADD PRIMARY KEY (id);
+
+-- 3. Copy dữ liệu (gồm cả partition DEFAULT), xóa bảng cũ cùng các partition
+INSERT INTO orders SELECT * FROM orders_partitioned;
+
+DROP TABLE orders_partitioned;
+
+-- 4. Tạo lại indexes của V12 và V16
+CREATE INDEX idx_orders_driver_created_id ON orders(driver_id, created_at DESC, id DESC);
+CREATE INDEX idx_orders_provider_created_id ON orders(provider_id, created_at DESC, id DESC)
+    WHERE provider_id IS NOT NULL;
+CREATE INDEX idx_orders_status ON orders(status);
+CREATE INDEX idx_orders_created_at ON orders(created_at);
+CREATE INDEX idx_orders_pickup_location ON orders USING GIST(pickup_location);
+CREATE INDEX idx_orders_finished_updated_at ON orders(updated_at)
+    WHERE status IN ('COMPLETED', 'CANCELLED');
+CREATE INDEX idx_orders_media_urls ON orders USING GIN (media_urls jsonb_path_ops);
+
+COMMENT ON TABLE orders IS 'Bảng quản lý đơn hàng cứu hộ';
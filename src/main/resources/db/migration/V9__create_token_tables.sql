@@ -0,0 +1,32 @@
+-- V9__create_token_tables.sql
+
+-- Refresh tokens (chỉ lưu SHA-256 hash, không lưu token gốc)
+CREATE TABLE refresh_tokens (
+    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    user_id UUID NOT NULL,
+    family_id UUID NOT NULL,
+    token_hash VARCHAR(64) UNIQUE NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP,
+    created_at TIMESTAMP DEFAULT NOW()
+);
+
+CREATE INDEX idx_refresh_tokens_user_id ON refresh_tokens(user_id);
+CREATE INDEX idx_refresh_tokens_family_id ON refresh_tokens(family_id);
+CREATE INDEX idx_refresh_tokens_expires_at ON refresh_tokens(expires_at);
+
+COMMENT ON TABLE refresh_tokens IS 'Refresh tokens (rotation: mỗi lần refresh sẽ revoke token cũ)';
+COMMENT ON COLUMN refresh_tokens.family_id IS 'Chuỗi token sinh ra từ cùng 1 lần đăng nhập (dùng để phát hiện reuse)';
+
+-- Access tokens đã bị revoke trước khi hết hạn (theo jti)
+CREATE TABLE revoked_tokens (
+    jti VARCHAR(36) PRIMARY KEY,
+    user_id UUID NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_revoked_tokens_revoked_at ON revoked_tokens(revoked_at);
+CREATE INDEX idx_revoked_tokens_expires_at ON revoked_tokens(expires_at);
+
+COMMENT ON TABLE revoked_tokens IS 'Access tokens bị logout, được sync định kỳ vào memory (bloom filter + exact set)';
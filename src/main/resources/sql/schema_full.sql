@@ -133,6 +133,24 @@ COMMENT ON COLUMN providers.live_location IS 'Real-time location when EN_ROUTE (
 -- TABLE: orders
 -- ============================================
 
+-- Tạo partition theo tháng (nếu chưa có), dùng cho các bảng *_archive
+CREATE OR REPLACE FUNCTION ensure_monthly_partition(parent TEXT, month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    from_date DATE := date_trunc('month', month_start)::DATE;
+    partition_name TEXT := parent || '_' || to_char(from_date, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NULL THEN
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+            partition_name, parent, from_date, (from_date + INTERVAL '1 month')::DATE);
+    END IF;
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Không partition: các query nóng tra theo id/driver/provider/status, không có điều kiện
+-- created_at để prune; job archive giữ bảng nhỏ
 CREATE TABLE IF NOT EXISTS orders (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
     driver_id UUID NOT NULL REFERENCES users(id),
@@ -146,19 +164,25 @@ CREATE TABLE IF NOT EXISTS orders (
     media_urls TEXT[],
     final_amount DECIMAL(10,2) DEFAULT 0,
     accepted_quote_id UUID,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     completed_at TIMESTAMP
 );
 
-CREATE INDEX IF NOT EXISTS idx_orders_driver ON orders(driver_id);
-CREATE INDEX IF NOT EXISTS idx_orders_provider ON orders(provider_id);
+CREATE INDEX IF NOT EXISTS idx_orders_driver_created_id ON orders(driver_id, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_orders_provider_created_id ON orders(provider_id, created_at DESC, id DESC)
+    WHERE provider_id IS NOT NULL;
 CREATE INDEX IF NOT EXISTS idx_orders_status ON orders(status);
+CREATE INDEX IF NOT EXISTS idx_orders_created_at ON orders(created_at);
 CREATE INDEX IF NOT EXISTS idx_orders_location ON orders USING GIST(pickup_location);
-CREATE INDEX IF NOT EXISTS idx_orders_created ON orders(created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_orders_finished_updated_at ON orders(updated_at)
+    WHERE status IN ('COMPLETED', 'CANCELLED');
 
 COMMENT ON TABLE orders IS 'Roadside assistance requests';
 
+-- quotes, add_ons, ratings không có FK tới orders: orders đã kết thúc
+-- được chuyển theo batch sang orders_archive
+
 
 -- ============================================
 -- TABLE: quotes
@@ -166,7 +190,7 @@ COMMENT ON TABLE orders IS 'Roadside assistance requests';
 
 CREATE TABLE IF NOT EXISTS quotes (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
-    order_id UUID NOT NULL REFERENCES orders(id) ON DELETE CASCADE,
+    order_id UUID NOT NULL,
     provider_id UUID NOT NULL REFERENCES users(id),
     base_price DECIMAL(10,2) NOT NULL,
     distance_price DECIMAL(10,2) DEFAULT 0,
@@ -193,7 +217,7 @@ COMMENT ON TABLE quotes IS 'Price quotes from providers';
 
 CREATE TABLE IF NOT EXISTS add_ons (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
-    order_id UUID NOT NULL REFERENCES orders(id) ON DELETE CASCADE,
+    order_id UUID NOT NULL,
     reason_code VARCHAR(50) NOT NULL,
     reason_text TEXT,
     amount DECIMAL(10,2) NOT NULL,
@@ -216,7 +240,7 @@ COMMENT ON TABLE add_ons IS 'Additional charges during service';
 
 CREATE TABLE IF NOT EXISTS ratings (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
-    order_id UUID UNIQUE NOT NULL REFERENCES orders(id) ON DELETE CASCADE,
+    order_id UUID UNIQUE NOT NULL,
     provider_id UUID NOT NULL REFERENCES users(id),
     driver_id UUID NOT NULL REFERENCES users(id),
     rating INTEGER NOT NULL CHECK (rating >= 1 AND rating <= 5),
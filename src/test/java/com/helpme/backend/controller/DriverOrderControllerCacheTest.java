@@ -0,0 +1,151 @@
+package com.helpme.backend.controller;
+
+import com.helpme.backend.dto.OrderDTO;
+import com.helpme.backend.entity.OrderStatus;
+import com.helpme.backend.entity.User;
+import com.helpme.backend.entity.UserRole;
+import com.helpme.backend.service.AddOnService;
+import com.helpme.backend.service.HttpCacheService;
+import com.helpme.backend.service.IdempotencyService;
+import com.helpme.backend.service.OrderService;
+import com.helpme.backend.service.QuoteStreamService;
+import com.helpme.backend.service.ResourceVersions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Conditional GET của order detail: 200 -> 304 -> dữ liệu đổi -> 200
+ */
+class DriverOrderControllerCacheTest {
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final ResourceVersions resourceVersions = mock(ResourceVersions.class);
+
+    private UUID orderId;
+    private User driver;
+
+    @BeforeEach
+    void setUp() {
+        orderId = UUID.randomUUID();
+        driver = new User();
+        driver.setId(UUID.randomUUID());
+        driver.setRole(UserRole.DRIVER);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(driver, null, List.of()));
+
+        OrderDTO order = OrderDTO.builder()
+                .id(orderId)
+                .driverId(driver.getId())
+                .status(OrderStatus.MATCHED)
+                .updatedAt(LocalDateTime.of(2026, 6, 1, 12, 0))
+                .build();
+        when(orderService.getOrderDetails(eq(orderId), any())).thenReturn(order);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void notModifiedUntilVersionChanges() throws Exception {
+        MockMvc mockMvc = mockMvc(new HttpCacheService());
+        when(resourceVersions.orderVersion(orderId)).thenReturn("v1");
+
+        String etag = mockMvc.perform(get("/v1/driver/orders/{orderId}", orderId))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/v1/driver/orders/{orderId}", orderId).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(orderService, times(1)).getOrderDetails(eq(orderId), any());
+
+        // Provider đổi avatar / order đổi trạng thái -> version trong DB đổi
+        when(resourceVersions.orderVersion(orderId)).thenReturn("v2");
+
+        String newEtag = mockMvc.perform(get("/v1/driver/orders/{orderId}", orderId).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertThat(newEtag).isNotEqualTo(etag);
+        verify(orderService, times(2)).getOrderDetails(eq(orderId), any());
+    }
+
+    @Test
+    void etagFromOneInstanceIsValidOnAnother() throws Exception {
+        when(resourceVersions.orderVersion(orderId)).thenReturn("v1");
+
+        String etag = mockMvc(new HttpCacheService()).perform(get("/v1/driver/orders/{orderId}", orderId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc(new HttpCacheService())
+                .perform(get("/v1/driver/orders/{orderId}", orderId).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void etagIsBoundToViewer() throws Exception {
+        MockMvc mockMvc = mockMvc(new HttpCacheService());
+        when(resourceVersions.orderVersion(orderId)).thenReturn("v1");
+
+        String etag = mockMvc.perform(get("/v1/driver/orders/{orderId}", orderId))
+                .andReturn().getResponse().getHeader("ETag");
+
+        User other = new User();
+        other.setId(UUID.randomUUID());
+        other.setRole(UserRole.DRIVER);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(other, null, List.of()));
+
+        mockMvc.perform(get("/v1/driver/orders/{orderId}", orderId).header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void missingOrderHasNoEtag() throws Exception {
+        when(resourceVersions.orderVersion(orderId)).thenReturn(null);
+
+        mockMvc(new HttpCacheService()).perform(get("/v1/driver/orders/{orderId}", orderId))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"));
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private MockMvc mockMvc(HttpCacheService httpCacheService) {
+        DriverOrderController controller = new DriverOrderController(
+                orderService,
+                mock(AddOnService.class),
+                mock(IdempotencyService.class),
+                httpCacheService,
+                mock(QuoteStreamService.class),
+                resourceVersions);
+
+        return MockMvcBuilders.standaloneSetup(controller)
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package com.helpme.backend.scheduler;
+
+import com.helpme.backend.entity.Order;
+import com.helpme.backend.entity.OrderStatus;
+import com.helpme.backend.entity.User;
+import com.helpme.backend.event.OrderCreatedEvent;
+import com.helpme.backend.event.OrderStatusChangedEvent;
+import com.helpme.backend.repository.OrderRepository;
+import com.helpme.backend.repository.UserRepository;
+import com.helpme.backend.service.NotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderDeadlineSchedulerTest {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+
+    private final OrderDeadlineScheduler scheduler =
+            new OrderDeadlineScheduler(orderRepository, userRepository, notificationService);
+
+    @BeforeEach
+    void setUp() {
+        when(orderRepository.claimDeadlineNotification(any(), anyString())).thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void staleBroadcastNotifiesDriverOnce() {
+        User driver = user("driver-token");
+        Order order = order(driver.getId(), null, OrderStatus.BROADCASTING,
+                LocalDateTime.now().minus(OrderDeadlineScheduler.STALE_BROADCAST_AFTER).minusMinutes(1));
+        when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+        when(userRepository.findById(driver.getId())).thenReturn(Optional.of(driver));
+
+        scheduler.onOrderCreated(new OrderCreatedEvent(order));
+
+        verify(notificationService, timeout(3000)).sendPushNotification(eq("driver-token"), anyString(), anyString());
+        verify(notificationService, after(2500).times(1)).sendPushNotification(anyString(), anyString(), anyString());
+        assertThat(scheduler.trackedCount()).isZero();
+    }
+
+    @Test
+    void longRunningServiceNotifiesProvider() {
+        User driver = user("driver-token");
+        User provider = user("provider-token");
+        Order order = order(driver.getId(), provider.getId(), OrderStatus.IN_SERVICE,
+                LocalDateTime.now().minus(OrderDeadlineScheduler.LONG_SERVICE_AFTER).minusMinutes(1));
+        when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+        when(userRepository.findById(provider.getId())).thenReturn(Optional.of(provider));
+
+        // Rebuild khi khởi động: deadline đã qua fire ở tick đầu tiên
+        when(orderRepository.findPendingDeadlineOrders()).thenReturn(List.of(order));
+        scheduler.rebuild();
+
+        verify(notificationService, timeout(3000)).sendPushNotification(eq("provider-token"), anyString(), anyString());
+        verify(notificationService, never()).sendPushNotification(eq("driver-token"), anyString(), anyString());
+    }
+
+    @Test
+    void leavingStateCancelsDeadline() {
+        User driver = user("driver-token");
+        Order order = order(driver.getId(), null, OrderStatus.BROADCASTING,
+                LocalDateTime.now().minus(OrderDeadlineScheduler.STALE_BROADCAST_AFTER).plusSeconds(2));
+
+        scheduler.onOrderCreated(new OrderCreatedEvent(order));
+        assertThat(scheduler.trackedCount()).isEqualTo(1);
+
+        scheduler.onOrderStatusChanged(new OrderStatusChangedEvent(
+                order.getId(), driver.getId(), UUID.randomUUID(), OrderStatus.BROADCASTING, OrderStatus.MATCHED));
+
+        assertThat(scheduler.trackedCount()).isZero();
+        verify(notificationService, after(3500).never()).sendPushNotification(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void orderThatAlreadyMovedOnIsNotNotified() {
+        User driver = user("driver-token");
+        Order order = order(driver.getId(), null, OrderStatus.BROADCASTING,
+                LocalDateTime.now().minus(OrderDeadlineScheduler.STALE_BROADCAST_AFTER).minusMinutes(1));
+
+        // Event MATCHED bị lỡ: DB đã khác trạng thái lúc deadline fire
+        Order matched = order(driver.getId(), UUID.randomUUID(), OrderStatus.MATCHED, order.getCreatedAt());
+        matched.setId(order.getId());
+        when(orderRepository.findById(order.getId())).thenReturn(Optional.of(matched));
+
+        scheduler.onOrderCreated(new OrderCreatedEvent(order));
+
+        verify(orderRepository, timeout(3000)).findById(order.getId());
+        verify(notificationService, after(500).never()).sendPushNotification(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void reconcileAfterFireDoesNotNotifyAgain() {
+        User driver = user("driver-token");
+        Order order = order(driver.getId(), null, OrderStatus.BROADCASTING,
+                LocalDateTime.now().minus(OrderDeadlineScheduler.STALE_BROADCAST_AFTER).minusMinutes(1));
+        when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+        when(userRepository.findById(driver.getId())).thenReturn(Optional.of(driver));
+        // DB: lần fire đầu giành được quyền nhắc, các lần sau (node khác / reconcile) thì không
+        when(orderRepository.claimDeadlineNotification(order.getId(), "BROADCASTING")).thenReturn(1, 0);
+        // Node đọc danh sách trước khi claim commit vẫn thấy order chưa được nhắc
+        when(orderRepository.findPendingDeadlineOrders()).thenReturn(List.of(order));
+
+        scheduler.onOrderCreated(new OrderCreatedEvent(order));
+        verify(notificationService, timeout(3000)).sendPushNotification(eq("driver-token"), anyString(), anyString());
+        assertThat(scheduler.trackedCount()).isZero();
+
+        scheduler.reconcile(Duration.ofMinutes(30));
+        verify(orderRepository, timeout(3000).times(2)).claimDeadlineNotification(order.getId(), "BROADCASTING");
+
+        // Restart: rebuild cũng không nhắc lại
+        scheduler.rebuild();
+        verify(orderRepository, timeout(3000).times(3)).claimDeadlineNotification(order.getId(), "BROADCASTING");
+        verify(notificationService, after(500).times(1)).sendPushNotification(anyString(), anyString(), anyString());
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private static User user(String pushToken) {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setPushToken(pushToken);
+        return user;
+    }
+
+    private static Order order(UUID driverId, UUID providerId, OrderStatus status, LocalDateTime since) {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .driverId(driverId)
+                .providerId(providerId)
+                .status(status)
+                .createdAt(since)
+                .updatedAt(since)
+                .build();
+    }
+}
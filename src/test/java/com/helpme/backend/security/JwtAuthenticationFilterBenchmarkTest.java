@@ -0,0 +1,147 @@
+package com.helpme.backend.security;
+
+import com.helpme.backend.entity.RevokedToken;
+import com.helpme.backend.entity.User;
+import com.helpme.backend.entity.UserRole;
+import com.helpme.backend.repository.RevokedTokenRepository;
+import com.helpme.backend.repository.UserRepository;
+import com.helpme.backend.service.TokenRevocationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Throughput của JwtAuthenticationFilter khi bật revocation
+ *
+ * Revocation set có 10k jti (đã sync từ DB), đo ns/request cho token hợp lệ.
+ * Chỉ assert cận trên rất rộng (phụ thuộc máy) để bắt regression cỡ bậc độ lớn,
+ * cùng với request path không chạm bảng revoked_tokens và token bị revoke luôn bị chặn.
+ */
+class JwtAuthenticationFilterBenchmarkTest {
+
+    private static final String SECRET = "144272b4f791df3b305fc1178710deb1f907321ee450887fd50ec3cf2f833c7f";
+    private static final int REVOKED_TOKENS = 10_000;
+    private static final int WARMUP_REQUESTS = 5_000;
+    private static final int MEASURED_REQUESTS = 20_000;
+    // Verify HMAC + lookup set thường cỡ vài chục µs, 1ms/request là regression rõ ràng
+    private static final long MAX_NANOS_PER_REQUEST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilterBenchmarkTest.class);
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final RevokedTokenRepository revokedTokenRepository = mock(RevokedTokenRepository.class);
+
+    private JwtUtil jwtUtil;
+    private TokenRevocationService revocationService;
+    private JwtAuthenticationFilter filter;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 900_000L);
+
+        user = new User();
+        user.setId(UUID.randomUUID());
+        user.setPhone("0901234567");
+        user.setFullName("Nguyen Van A");
+        user.setRole(UserRole.DRIVER);
+        when(userRepository.findByPhone(user.getPhone())).thenReturn(Optional.of(user));
+
+        List<RevokedToken> revoked = new ArrayList<>(REVOKED_TOKENS);
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(15);
+        for (int i = 0; i < REVOKED_TOKENS; i++) {
+            revoked.add(RevokedToken.builder()
+                    .jti(UUID.randomUUID().toString())
+                    .userId(UUID.randomUUID())
+                    .expiresAt(expiresAt)
+                    .revokedAt(LocalDateTime.now())
+                    .build());
+        }
+        when(revokedTokenRepository.findRevokedSince(any(), any())).thenReturn(revoked);
+
+        revocationService = new TokenRevocationService(revokedTokenRepository);
+        revocationService.sync();
+        clearInvocations(revokedTokenRepository);
+
+        filter = new JwtAuthenticationFilter(jwtUtil, userRepository, revocationService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void filterThroughputWithRevocationEnabled() throws Exception {
+        String token = jwtUtil.generateToken(user);
+
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            assertThat(authenticate(token)).isTrue();
+        }
+
+        int authenticated = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < MEASURED_REQUESTS; i++) {
+            if (authenticate(token)) {
+                authenticated++;
+            }
+        }
+        long nanosPerRequest = (System.nanoTime() - started) / MEASURED_REQUESTS;
+
+        log.debug("JwtAuthenticationFilter: {} requests, {} ns/request ({} revoked jtis)",
+                MEASURED_REQUESTS, nanosPerRequest, revocationService.size());
+
+        assertThat(authenticated).isEqualTo(MEASURED_REQUESTS);
+        assertThat(nanosPerRequest).isLessThan(MAX_NANOS_PER_REQUEST);
+
+        // Revocation check chỉ đọc memory
+        verifyNoInteractions(revokedTokenRepository);
+    }
+
+    @Test
+    void revokedTokenIsRejectedWithoutDatabaseRead() throws Exception {
+        String token = jwtUtil.generateToken(user);
+        String jti = jwtUtil.extractTokenId(token);
+
+        when(revokedTokenRepository.save(any(RevokedToken.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        revocationService.revoke(jti, user.getId(), LocalDateTime.now().plusMinutes(15));
+        clearInvocations(revokedTokenRepository);
+
+        assertThat(authenticate(token)).isFalse();
+        assertThat(authenticate(jwtUtil.generateToken(user))).isTrue();
+        verifyNoInteractions(revokedTokenRepository);
+    }
+
+    private boolean authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/driver/orders");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        return SecurityContextHolder.getContext().getAuthentication() != null;
+    }
+}
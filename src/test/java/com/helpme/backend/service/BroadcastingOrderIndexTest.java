@@ -0,0 +1,187 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.entity.Order;
+import com.helpme.backend.entity.OrderStatus;
+import com.helpme.backend.event.OrderCreatedEvent;
+import com.helpme.backend.event.OrderStatusChangedEvent;
+import com.helpme.backend.repository.OrderRepository;
+import com.helpme.backend.service.BroadcastingOrderIndex.Change;
+import com.helpme.backend.service.BroadcastingOrderIndex.NearbyOrder;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BroadcastingOrderIndexTest {
+
+    // Hồ Gươm, Hà Nội
+    private static final double LAT = 21.0285;
+    private static final double LNG = 105.8542;
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final BroadcastingOrderIndex index = new BroadcastingOrderIndex(orderRepository);
+
+    @Test
+    void removalDuringReconcileQueryIsNotReAdded() {
+        Order order = order(LAT, LNG, LocalDateTime.now());
+        index.onOrderCreated(new OrderCreatedEvent(order));
+
+        // Snapshot DB được đọc khi order còn BROADCASTING, event MATCHED (AFTER_COMMIT) tới ngay sau đó
+        when(orderRepository.findByStatusIn(any())).thenAnswer(invocation -> {
+            List<Order> snapshot = List.of(order);
+            index.onOrderStatusChanged(matched(order));
+            return snapshot;
+        });
+
+        index.reconcile();
+
+        assertThat(index.contains(order.getId())).isFalse();
+        assertThat(index.findNearby(LAT, LNG, 1000, null, 10)).isEmpty();
+    }
+
+    @Test
+    void removalBeforeOrderWasIndexedIsNotReAdded() {
+        // Order tạo ở instance khác: chưa có trong index khi event rời BROADCASTING tới
+        Order order = order(LAT, LNG, LocalDateTime.now());
+        when(orderRepository.findByStatusIn(any())).thenAnswer(invocation -> {
+            List<Order> snapshot = List.of(order);
+            index.onOrderStatusChanged(matched(order));
+            return snapshot;
+        });
+
+        index.reconcile();
+
+        assertThat(index.contains(order.getId())).isFalse();
+    }
+
+    @Test
+    void reconcileAddsMissingAndRemovesFinishedOrders() throws InterruptedException {
+        Order stale = order(LAT, LNG, LocalDateTime.now());
+        index.onOrderCreated(new OrderCreatedEvent(stale));
+        Thread.sleep(2);
+
+        Order missing = order(LAT, LNG, LocalDateTime.now());
+        when(orderRepository.findByStatusIn(any())).thenReturn(List.of(missing));
+
+        index.reconcile();
+
+        assertThat(index.contains(missing.getId())).isTrue();
+        assertThat(index.contains(stale.getId())).isFalse();
+    }
+
+    @Test
+    void tombstoneOnlyAffectsReconcileThatStartedBeforeRemoval() throws InterruptedException {
+        Order order = order(LAT, LNG, LocalDateTime.now());
+        index.onOrderStatusChanged(matched(order));
+        Thread.sleep(2);
+
+        // Reconcile bắt đầu sau event: DB vẫn trả BROADCASTING (vd: order được mở lại) -> tin DB
+        when(orderRepository.findByStatusIn(any())).thenReturn(List.of(order));
+        index.reconcile();
+
+        assertThat(index.contains(order.getId())).isTrue();
+    }
+
+    @Test
+    void findNearbySpansCellsAndSortsByDistance() {
+        // ~0.55km, ~3.3km, ~8.9km về phía bắc, và 1 order ngoài bán kính
+        Order near = order(LAT + 0.005, LNG, LocalDateTime.now());
+        Order middle = order(LAT + 0.03, LNG, LocalDateTime.now());
+        Order far = order(LAT + 0.08, LNG, LocalDateTime.now());
+        Order outside = order(LAT + 0.2, LNG, LocalDateTime.now());
+        for (Order order : List.of(far, outside, near, middle)) {
+            index.onOrderCreated(new OrderCreatedEvent(order));
+        }
+
+        List<NearbyOrder> nearby = index.findNearby(LAT, LNG, 10_000, null, 10);
+
+        assertThat(nearby).extracting(n -> n.order().id())
+                .containsExactly(near.getId(), middle.getId(), far.getId());
+        assertThat(nearby.get(0).distanceMeters()).isBetween(500.0, 600.0);
+
+        assertThat(index.findNearby(LAT, LNG, 10_000, null, 2)).hasSize(2);
+        assertThat(index.findNearby(LAT, LNG, 1_000, null, 10)).hasSize(1);
+    }
+
+    @Test
+    void findNearbyWorksAcrossNegativeCoordinates() {
+        // Ô lưới quanh kinh tuyến 0 / xích đạo (floor của số âm)
+        Order west = order(-0.001, -0.001, LocalDateTime.now());
+        Order east = order(0.001, 0.001, LocalDateTime.now());
+        index.onOrderCreated(new OrderCreatedEvent(west));
+        index.onOrderCreated(new OrderCreatedEvent(east));
+
+        assertThat(index.findNearby(0, 0, 500, null, 10)).hasSize(2);
+    }
+
+    @Test
+    void findNearbySkipsOrdersCreatedBeforeSince() {
+        LocalDateTime now = LocalDateTime.now();
+        Order fresh = order(LAT, LNG, now);
+        Order old = order(LAT, LNG, now.minusHours(30));
+        index.onOrderCreated(new OrderCreatedEvent(fresh));
+        index.onOrderCreated(new OrderCreatedEvent(old));
+
+        assertThat(index.findNearby(LAT, LNG, 1000, now.minusHours(24), 10))
+                .extracting(n -> n.order().id())
+                .containsExactly(fresh.getId());
+    }
+
+    @Test
+    void changesSinceReturnsAddsAndRemovesInOrder() {
+        long cursor = index.currentSequence();
+        Order order = order(LAT, LNG, LocalDateTime.now());
+
+        index.onOrderCreated(new OrderCreatedEvent(order));
+        index.onOrderStatusChanged(matched(order));
+
+        List<Change> changes = index.changesSince(cursor).orElseThrow();
+        assertThat(changes).extracting(Change::added).containsExactly(true, false);
+        assertThat(changes).extracting(change -> change.order().id()).containsOnly(order.getId());
+        assertThat(index.changesSince(index.currentSequence())).contains(List.of());
+        assertThat(index.changesSince(index.currentSequence() + 1)).isEmpty();
+    }
+
+    @Test
+    void cursorFromAnotherInstanceForcesReset() {
+        Order order = order(LAT, LNG, LocalDateTime.now());
+        index.onOrderCreated(new OrderCreatedEvent(order));
+        String cursor = index.currentCursor();
+
+        // Instance mới (restart / node khác) đánh số lại từ 0, sequence của cursor cũ vẫn hợp lệ về số
+        BroadcastingOrderIndex restarted = new BroadcastingOrderIndex(orderRepository);
+        restarted.onOrderCreated(new OrderCreatedEvent(order(LAT, LNG, LocalDateTime.now())));
+        restarted.onOrderCreated(new OrderCreatedEvent(order(LAT, LNG, LocalDateTime.now())));
+
+        assertThat(restarted.changesSince(cursor)).isEmpty();
+        assertThat(restarted.changesSince("1")).isEmpty();
+        assertThat(index.changesSince(cursor)).contains(List.of());
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private Order order(double lat, double lng, LocalDateTime createdAt) {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .driverId(UUID.randomUUID())
+                .status(OrderStatus.BROADCASTING)
+                .serviceType("TOWING")
+                .pickupLocation(geometryFactory.createPoint(new Coordinate(lng, lat)))
+                .createdAt(createdAt)
+                .build();
+    }
+
+    private static OrderStatusChangedEvent matched(Order order) {
+        return new OrderStatusChangedEvent(
+                order.getId(), order.getDriverId(), UUID.randomUUID(), OrderStatus.BROADCASTING, OrderStatus.MATCHED);
+    }
+}
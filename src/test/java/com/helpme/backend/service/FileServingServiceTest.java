@@ -0,0 +1,203 @@
+package com.helpme.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Range / If-Range / If-None-Match khi serve file local
+ */
+class FileServingServiceTest {
+
+    private static final String RELATIVE_PATH = "orders/photo.jpg";
+    private static final String CONTENT = "0123456789";
+
+    @TempDir
+    Path uploadDir;
+
+    private final FileServingService fileServingService = new FileServingService();
+
+    private Path file;
+    private String etag;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = uploadDir.resolve("photo.jpg");
+        Files.writeString(file, CONTENT);
+
+        etag = serve(new MockHttpServletRequest("GET", "/")).getHeader(HttpHeaders.ETAG);
+    }
+
+    @Test
+    void fullBodyWithoutRange() throws IOException {
+        MockHttpServletResponse response = serve(new MockHttpServletRequest("GET", "/"));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+        assertThat(response.getContentType()).isEqualTo("image/jpeg");
+        assertThat(etag).isNotBlank();
+    }
+
+    @Test
+    void suffixRangeReturnsLastBytes() throws IOException {
+        MockHttpServletResponse response = serve(withRange("bytes=-3"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 7-9/10");
+        assertThat(response.getContentAsString()).isEqualTo("789");
+    }
+
+    @Test
+    void suffixLongerThanFileReturnsWholeFile() throws IOException {
+        MockHttpServletResponse response = serve(withRange("bytes=-50"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 0-9/10");
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void openEndedRangeReturnsRest() throws IOException {
+        MockHttpServletResponse response = serve(withRange("bytes=4-"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 4-9/10");
+        assertThat(response.getContentAsString()).isEqualTo("456789");
+    }
+
+    @Test
+    void endPastFileIsClamped() throws IOException {
+        MockHttpServletResponse response = serve(withRange("bytes=8-100"));
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 8-9/10");
+        assertThat(response.getContentAsString()).isEqualTo("89");
+    }
+
+    @Test
+    void rangeOutsideFileIsUnsatisfiable() throws IOException {
+        MockHttpServletResponse response = serve(withRange("bytes=10-"));
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void emptySuffixIsUnsatisfiable() throws IOException {
+        MockHttpServletResponse response = serve(withRange("bytes=-0"));
+
+        assertThat(response.getStatus()).isEqualTo(416);
+    }
+
+    @Test
+    void multipleRangesFallBackToFullBody() throws IOException {
+        MockHttpServletResponse response = serve(withRange("bytes=0-1,4-5"));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void invalidRangeFallsBackToFullBody() throws IOException {
+        MockHttpServletResponse response = serve(withRange("bytes=5-2"));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void ifRangeMatchingEtagReturnsPartial() throws IOException {
+        MockHttpServletRequest request = withRange("bytes=0-1");
+        request.addHeader(HttpHeaders.IF_RANGE, etag);
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("01");
+    }
+
+    @Test
+    void ifRangeMismatchReturnsFullBody() throws IOException {
+        MockHttpServletRequest request = withRange("bytes=0-1");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void weakIfRangeNeverMatches() throws IOException {
+        MockHttpServletRequest request = withRange("bytes=0-1");
+        request.addHeader(HttpHeaders.IF_RANGE, "W/" + etag);
+
+        MockHttpServletResponse response = serve(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void ifNoneMatchSameEtagIsNotModified() throws IOException {
+        MockHttpServletResponse response = serve(withIfNoneMatch(etag));
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void ifNoneMatchWeakEtagIsNotModified() throws IOException {
+        MockHttpServletResponse response = serve(withIfNoneMatch("\"other\", W/" + etag));
+
+        assertThat(response.getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    void ifNoneMatchWildcardIsNotModified() throws IOException {
+        MockHttpServletResponse response = serve(withIfNoneMatch("*"));
+
+        assertThat(response.getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    void ifNoneMatchOtherEtagReturnsBody() throws IOException {
+        MockHttpServletResponse response = serve(withIfNoneMatch("\"other\""));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        fileServingService.serve(RELATIVE_PATH, file, true, request, response);
+        return response;
+    }
+
+    private MockHttpServletRequest withRange(String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, range);
+        return request;
+    }
+
+    private MockHttpServletRequest withIfNoneMatch(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        return request;
+    }
+}
@@ -0,0 +1,34 @@
+package com.helpme.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Subsampling khi decode không được làm cạnh dài nhỏ hơn variant MEDIUM (1080px)
+ */
+class ImageVariantServiceTest {
+
+    @Test
+    void phonePhotoIsSubsampled() {
+        // 4032x3024 → đọc 1344x1008 thay vì cả 12MP
+        assertThat(ImageVariantService.subsamplingFactor(4032, 3024)).isEqualTo(3);
+        assertThat(ImageVariantService.subsamplingFactor(3024, 4032)).isEqualTo(3);
+    }
+
+    @Test
+    void longEdgeStaysAtLeastMediumSize() {
+        for (int longEdge = 1080; longEdge <= 12000; longEdge += 7) {
+            int factor = ImageVariantService.subsamplingFactor(longEdge, longEdge / 2);
+            int decodedLongEdge = (longEdge + factor - 1) / factor;
+
+            assertThat(decodedLongEdge).isGreaterThanOrEqualTo(1080);
+        }
+    }
+
+    @Test
+    void smallImageIsReadInFull() {
+        assertThat(ImageVariantService.subsamplingFactor(800, 600)).isEqualTo(1);
+        assertThat(ImageVariantService.subsamplingFactor(2159, 1000)).isEqualTo(1);
+    }
+}
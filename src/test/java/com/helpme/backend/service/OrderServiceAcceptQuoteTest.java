@@ -0,0 +1,145 @@
+package com.helpme.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helpme.backend.entity.*;
+import com.helpme.backend.exception.BadRequestException;
+import com.helpme.backend.repository.OrderRepository;
+import com.helpme.backend.repository.ProviderRepository;
+import com.helpme.backend.repository.QuoteRepository;
+import com.helpme.backend.repository.UserRepository;
+import com.helpme.backend.websocket.SocketIOService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Nhiều request accept song song cho cùng 1 order → đúng 1 request thắng
+ *
+ * Row orders / quotes được giả lập bằng compare-and-set, giống UPDATE ... WHERE status = ...
+ * của Postgres (row lock + re-check điều kiện sau khi chờ lock)
+ */
+class OrderServiceAcceptQuoteTest {
+
+    private static final int PARALLEL_ACCEPTS = 16;
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final QuoteRepository quoteRepository = mock(QuoteRepository.class);
+    private final OrderStateMachine orderStateMachine = mock(OrderStateMachine.class);
+    private final SocketIOService socketService = mock(SocketIOService.class);
+
+    private final AtomicReference<OrderStatus> orderStatus = new AtomicReference<>(OrderStatus.BROADCASTING);
+    private final Map<UUID, QuoteStatus> quoteStatuses = new ConcurrentHashMap<>();
+    private final List<Quote> quotes = new ArrayList<>();
+
+    private UUID orderId;
+    private User driver;
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderId = UUID.randomUUID();
+        driver = new User();
+        driver.setId(UUID.randomUUID());
+        driver.setRole(UserRole.DRIVER);
+
+        for (int i = 0; i < PARALLEL_ACCEPTS; i++) {
+            Quote quote = Quote.builder()
+                    .id(UUID.randomUUID())
+                    .orderId(orderId)
+                    .providerId(UUID.randomUUID())
+                    .status(QuoteStatus.PENDING)
+                    .totalEst(new BigDecimal(100_000 + i))
+                    .build();
+            quotes.add(quote);
+            quoteStatuses.put(quote.getId(), QuoteStatus.PENDING);
+            when(quoteRepository.findById(quote.getId())).thenReturn(Optional.of(quote));
+        }
+
+        when(orderRepository.matchIfBroadcasting(eq(orderId), eq(driver.getId()), any(), any(), any()))
+                .thenAnswer(invocation -> orderStatus.compareAndSet(OrderStatus.BROADCASTING, OrderStatus.MATCHED) ? 1 : 0);
+        when(orderRepository.findById(orderId)).thenAnswer(invocation -> Optional.of(Order.builder()
+                .id(orderId)
+                .driverId(driver.getId())
+                .status(orderStatus.get())
+                .build()));
+        when(quoteRepository.acceptIfPending(any())).thenAnswer(invocation ->
+                quoteStatuses.replace(invocation.getArgument(0), QuoteStatus.PENDING, QuoteStatus.ACCEPTED) ? 1 : 0);
+
+        orderService = new OrderService(
+                orderRepository,
+                quoteRepository,
+                mock(UserRepository.class),
+                new ProviderCardCache(mock(ProviderRepository.class), mock(UserRepository.class)),
+                new GeometryFactory(),
+                mock(BroadcastService.class),
+                socketService,
+                orderStateMachine,
+                new ObjectMapper());
+    }
+
+    @RepeatedTest(20)
+    void parallelAcceptsHaveExactlyOneWinner() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(PARALLEL_ACCEPTS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Quote quote : quotes) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        orderService.acceptQuote(quote.getId(), driver);
+                        winners.incrementAndGet();
+                    } catch (BadRequestException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(winners.get()).isEqualTo(1);
+        assertThat(rejected.get()).isEqualTo(PARALLEL_ACCEPTS - 1);
+        assertThat(orderStatus.get()).isEqualTo(OrderStatus.MATCHED);
+        assertThat(quoteStatuses.values()).containsOnlyOnce(QuoteStatus.ACCEPTED);
+
+        // Chỉ người thắng phát event và notify provider
+        verify(orderStateMachine, times(1)).fireTransitioned(
+                eq(orderId), eq(driver.getId()), any(), eq(OrderStatus.BROADCASTING), eq(OrderStatus.MATCHED));
+        verify(quoteRepository, times(1)).rejectOtherQuotes(eq(orderId), any());
+        verify(socketService, times(1)).emitToUser(any(), eq("quote_accepted"), anyMap());
+    }
+}
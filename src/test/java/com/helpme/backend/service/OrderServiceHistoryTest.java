@@ -0,0 +1,118 @@
+package com.helpme.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helpme.backend.dto.CursorPageDTO;
+import com.helpme.backend.dto.OrderDTO;
+import com.helpme.backend.entity.Order;
+import com.helpme.backend.entity.OrderStatus;
+import com.helpme.backend.entity.User;
+import com.helpme.backend.entity.UserRole;
+import com.helpme.backend.repository.OrderRepository;
+import com.helpme.backend.repository.ProviderRepository;
+import com.helpme.backend.repository.QuoteRepository;
+import com.helpme.backend.repository.UserRepository;
+import com.helpme.backend.util.KeysetCursor;
+import com.helpme.backend.websocket.SocketIOService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lịch sử orders đọc cả orders và orders_archive, merge theo keyset (created_at, id)
+ */
+class OrderServiceHistoryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 6, 1, 12, 0);
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+
+    private User driver;
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        driver = new User();
+        driver.setId(UUID.randomUUID());
+        driver.setRole(UserRole.DRIVER);
+
+        orderService = new OrderService(
+                orderRepository,
+                mock(QuoteRepository.class),
+                mock(UserRepository.class),
+                new ProviderCardCache(mock(ProviderRepository.class), mock(UserRepository.class)),
+                new GeometryFactory(),
+                mock(BroadcastService.class),
+                mock(SocketIOService.class),
+                mock(OrderStateMachine.class),
+                new ObjectMapper());
+    }
+
+    @Test
+    void hotAndArchivedOrdersAreMergedNewestFirst() {
+        // Order tạo 40 ngày trước nhưng mới kết thúc vẫn còn ở bảng orders, xen giữa các order đã archive
+        Order hot1 = order(NOW.minusDays(1));
+        Order hot2 = order(NOW.minusDays(40));
+        Order archived1 = order(NOW.minusDays(35));
+        Order archived2 = order(NOW.minusDays(45));
+        when(orderRepository.findDriverHistoryPage(eq(driver.getId()), any(), any(), anyInt()))
+                .thenReturn(List.of(hot1, hot2));
+        when(orderRepository.findDriverArchivedHistoryPage(eq(driver.getId()), any(), any(), anyInt()))
+                .thenReturn(List.of(archived1, archived2));
+
+        CursorPageDTO<OrderDTO> page = orderService.getOrderHistory(driver, null, 3);
+
+        assertThat(page.getItems()).extracting(OrderDTO::getId)
+                .containsExactly(hot1.getId(), archived1.getId(), hot2.getId());
+        assertThat(page.getNextCursor()).isNotNull();
+
+        // Trang sau dùng cùng 1 cursor cho cả 2 bảng
+        KeysetCursor next = KeysetCursor.decode(page.getNextCursor());
+        assertThat(next.id()).isEqualTo(hot2.getId());
+        orderService.getOrderHistory(driver, page.getNextCursor(), 3);
+        verify(orderRepository).findDriverHistoryPage(driver.getId(), next.createdAt(), next.id(), 4);
+        verify(orderRepository).findDriverArchivedHistoryPage(driver.getId(), next.createdAt(), next.id(), 4);
+    }
+
+    @Test
+    void sameCreatedAtIsOrderedLikePostgresUuid() {
+        // Postgres so sánh uuid unsigned: 8000... > 7fff... (UUID.compareTo của Java thì ngược lại)
+        Order high = order(NOW);
+        high.setId(UUID.fromString("80000000-0000-0000-0000-000000000000"));
+        Order low = order(NOW);
+        low.setId(UUID.fromString("7fffffff-ffff-ffff-ffff-ffffffffffff"));
+        when(orderRepository.findDriverHistoryPage(eq(driver.getId()), any(), any(), anyInt()))
+                .thenReturn(List.of(low));
+        when(orderRepository.findDriverArchivedHistoryPage(eq(driver.getId()), any(), any(), anyInt()))
+                .thenReturn(List.of(high));
+
+        CursorPageDTO<OrderDTO> page = orderService.getOrderHistory(driver, null, 10);
+
+        assertThat(page.getItems()).extracting(OrderDTO::getId)
+                .containsExactly(high.getId(), low.getId());
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private Order order(LocalDateTime createdAt) {
+        return Order.builder()
+                .id(UUID.randomUUID())
+                .driverId(driver.getId())
+                .status(OrderStatus.COMPLETED)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+    }
+}
@@ -0,0 +1,199 @@
+package com.helpme.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helpme.backend.dto.CursorPageDTO;
+import com.helpme.backend.dto.OrderDTO;
+import com.helpme.backend.dto.QuoteDTO;
+import com.helpme.backend.entity.*;
+import com.helpme.backend.repository.OrderRepository;
+import com.helpme.backend.repository.ProviderRepository;
+import com.helpme.backend.repository.QuoteRepository;
+import com.helpme.backend.repository.UserRepository;
+import com.helpme.backend.websocket.SocketIOService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Số query để build N OrderDTO / QuoteDTO không phụ thuộc N
+ * (drivers và providers được load theo lô, không có N+1)
+ */
+class OrderServiceQueryCountTest {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final QuoteRepository quoteRepository = mock(QuoteRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ProviderRepository providerRepository = mock(ProviderRepository.class);
+
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<User> users = new ArrayList<>();
+            for (UUID id : invocation.<Iterable<UUID>>getArgument(0)) {
+                User user = new User();
+                user.setId(id);
+                user.setPhone("09" + Math.abs(id.hashCode() % 100_000_000));
+                user.setFullName("User " + id);
+                user.setRole(UserRole.DRIVER);
+                users.add(user);
+            }
+            return users;
+        });
+        when(providerRepository.findAllById(any())).thenAnswer(invocation ->
+                StreamSupport.stream(invocation.<Iterable<UUID>>getArgument(0).spliterator(), false)
+                        .map(id -> Provider.builder()
+                                .id(id)
+                                .orgName("Garage " + id)
+                                .ratingAvg(new BigDecimal("4.50"))
+                                .build())
+                        .toList());
+
+        orderService = new OrderService(
+                orderRepository,
+                quoteRepository,
+                userRepository,
+                new ProviderCardCache(providerRepository, userRepository),
+                new GeometryFactory(),
+                mock(BroadcastService.class),
+                mock(SocketIOService.class),
+                mock(OrderStateMachine.class),
+                new ObjectMapper());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    void historyPageCostsConstantQueries(int orderCount) {
+        List<Order> orders = new ArrayList<>();
+        LocalDateTime createdAt = LocalDateTime.now();
+        for (int i = 0; i < orderCount; i++) {
+            // Driver và provider khác nhau cho mỗi order: trường hợp xấu nhất cho N+1
+            orders.add(Order.builder()
+                    .id(UUID.randomUUID())
+                    .driverId(UUID.randomUUID())
+                    .providerId(UUID.randomUUID())
+                    .status(OrderStatus.COMPLETED)
+                    .createdAt(createdAt.minusMinutes(i))
+                    .build());
+        }
+        when(orderRepository.findProviderHistoryPage(any(), any(), any(), anyInt())).thenReturn(orders);
+
+        User provider = new User();
+        provider.setId(UUID.randomUUID());
+        provider.setRole(UserRole.PROVIDER);
+        clearRepositoryInvocations();
+
+        CursorPageDTO<OrderDTO> page = orderService.getOrderHistory(provider, null, 100);
+
+        assertThat(page.getItems()).hasSize(orderCount);
+        assertThat(page.getItems()).allSatisfy(dto -> {
+            assertThat(dto.getDriverName()).isNotNull();
+            assertThat(dto.getProviderOrgName()).isNotNull();
+        });
+
+        // 1 lô drivers + 1 lô users của providers, 1 lô providers
+        verify(userRepository, times(2)).findAllById(any());
+        verify(providerRepository, times(1)).findAllById(any());
+        verify(userRepository, never()).findById(any());
+        verify(providerRepository, never()).findById(any());
+
+        // + 1 query trang history orders + 1 query trang orders_archive
+        assertThat(repositoryCalls()).isEqualTo(5);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    void quotesCostConstantQueries(int quoteCount) {
+        UUID orderId = UUID.randomUUID();
+        User driver = new User();
+        driver.setId(UUID.randomUUID());
+        driver.setRole(UserRole.DRIVER);
+
+        List<Quote> quotes = new ArrayList<>();
+        for (int i = 0; i < quoteCount; i++) {
+            quotes.add(Quote.builder()
+                    .id(UUID.randomUUID())
+                    .orderId(orderId)
+                    .providerId(UUID.randomUUID())
+                    .status(QuoteStatus.PENDING)
+                    .totalEst(new BigDecimal("150000"))
+                    .build());
+        }
+        when(orderRepository.findByIdAndDriverId(orderId, driver.getId()))
+                .thenReturn(Optional.of(Order.builder().id(orderId).driverId(driver.getId()).build()));
+        when(quoteRepository.findByOrderIdOrderByCreatedAtAsc(orderId)).thenReturn(quotes);
+        clearRepositoryInvocations();
+
+        List<QuoteDTO> dtos = orderService.getQuotes(orderId, driver);
+
+        assertThat(dtos).hasSize(quoteCount);
+        assertThat(dtos).allSatisfy(dto -> assertThat(dto.getProviderOrgName()).isNotNull());
+
+        // 1 order + 1 quotes + 1 lô providers + 1 lô users của providers
+        assertThat(repositoryCalls()).isEqualTo(4);
+    }
+
+    @Test
+    void quotesBypassProviderCardCache() {
+        UUID orderId = UUID.randomUUID();
+        User driver = new User();
+        driver.setId(UUID.randomUUID());
+        driver.setRole(UserRole.DRIVER);
+        Quote quote = Quote.builder()
+                .id(UUID.randomUUID())
+                .orderId(orderId)
+                .providerId(UUID.randomUUID())
+                .status(QuoteStatus.PENDING)
+                .totalEst(new BigDecimal("150000"))
+                .build();
+        when(orderRepository.findByIdAndDriverId(orderId, driver.getId()))
+                .thenReturn(Optional.of(Order.builder().id(orderId).driverId(driver.getId()).build()));
+        when(quoteRepository.findByOrderIdOrderByCreatedAtAsc(orderId)).thenReturn(List.of(quote));
+
+        assertThat(orderService.getQuotes(orderId, driver).get(0).getProviderRating()).isEqualByComparingTo("4.50");
+
+        // Rating đổi ở node khác: ETag (tính từ DB) đổi, body cũng phải đổi theo
+        when(providerRepository.findAllById(any())).thenReturn(List.of(Provider.builder()
+                .id(quote.getProviderId())
+                .orgName("Garage")
+                .ratingAvg(new BigDecimal("3.00"))
+                .build()));
+
+        assertThat(orderService.getQuotes(orderId, driver).get(0).getProviderRating()).isEqualByComparingTo("3.00");
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private void clearRepositoryInvocations() {
+        clearInvocations(orderRepository, quoteRepository, userRepository, providerRepository);
+    }
+
+    private int repositoryCalls() {
+        return mockingDetails(orderRepository).getInvocations().size()
+                + mockingDetails(quoteRepository).getInvocations().size()
+                + mockingDetails(userRepository).getInvocations().size()
+                + mockingDetails(providerRepository).getInvocations().size();
+    }
+}
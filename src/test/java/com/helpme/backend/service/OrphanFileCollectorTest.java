@@ -0,0 +1,96 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.repository.FileBlobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Orphan GC chỉ xóa file cũ hơn grace period mà DB không tham chiếu
+ */
+class OrphanFileCollectorTest {
+
+    private static final String REFERENCED = "orders/ab/cd/abcd-referenced.jpg";
+    private static final String ORPHAN = "orders/ab/cd/abcd-orphan.jpg";
+    private static final String FRESH = "orders/ab/cd/abcd-fresh.jpg";
+
+    @TempDir
+    Path uploadDir;
+
+    private final FileBlobRepository fileBlobRepository = mock(FileBlobRepository.class);
+
+    private OrphanFileCollector collector;
+
+    @BeforeEach
+    void setUp() {
+        LocalStorageService storageService = new LocalStorageService(
+                mock(ImageVariantService.class), mock(FileBlobService.class), mock(FileServingService.class));
+        ReflectionTestUtils.setField(storageService, "uploadDir", uploadDir.toString());
+
+        collector = new OrphanFileCollector(storageService, fileBlobRepository);
+    }
+
+    @Test
+    void referencedFileSurvivesSweep() throws IOException {
+        Instant twoDaysAgo = Instant.now().minus(Duration.ofDays(2));
+        write(REFERENCED, twoDaysAgo);
+        write(ORPHAN, twoDaysAgo);
+        write(FRESH, Instant.now());
+        when(fileBlobRepository.findReferencedPaths(anyString())).thenReturn(List.of(REFERENCED));
+
+        OrphanFileCollector.Result result = collector.collect(Duration.ofHours(24), 500, 0);
+
+        assertThat(uploadDir.resolve(REFERENCED)).exists();
+        assertThat(uploadDir.resolve(FRESH)).exists();
+        assertThat(uploadDir.resolve(ORPHAN)).doesNotExist();
+        assertThat(result.scanned()).isEqualTo(3);
+        assertThat(result.deleted()).isEqualTo(1);
+    }
+
+    @Test
+    void referencedFileSurvivesAcrossBatches() throws IOException {
+        Instant twoDaysAgo = Instant.now().minus(Duration.ofDays(2));
+        write(REFERENCED, twoDaysAgo);
+        write(ORPHAN, twoDaysAgo);
+        when(fileBlobRepository.findReferencedPaths(anyString()))
+                .thenAnswer(invocation -> invocation.<String>getArgument(0).equals(REFERENCED)
+                        ? List.of(REFERENCED)
+                        : List.of());
+
+        collector.collect(Duration.ofHours(24), 1, 0);
+
+        assertThat(uploadDir.resolve(REFERENCED)).exists();
+        assertThat(uploadDir.resolve(ORPHAN)).doesNotExist();
+    }
+
+    @Test
+    void mediaUrlsAreNormalizedToServedPath() {
+        assertThat(StorageService.normalizeFileUrl("https://api.helpme.vn/v1/files/" + REFERENCED + "?size=thumb"))
+                .isEqualTo("/v1/files/" + REFERENCED);
+        assertThat(StorageService.normalizeFileUrl("/v1/files/" + REFERENCED)).isEqualTo("/v1/files/" + REFERENCED);
+        assertThat(StorageService.normalizeFileUrl("https://cdn.example.com/x.jpg")).isEqualTo("https://cdn.example.com/x.jpg");
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private void write(String relativePath, Instant modifiedAt) throws IOException {
+        Path file = uploadDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[] { 1, 2, 3 });
+        Files.setLastModifiedTime(file, FileTime.from(modifiedAt));
+    }
+}
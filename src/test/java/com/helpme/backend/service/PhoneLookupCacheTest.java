@@ -0,0 +1,79 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.entity.User;
+import com.helpme.backend.entity.UserRole;
+import com.helpme.backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PhoneLookupCacheTest {
+
+    private static final String PHONE = "0901234567";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    @Test
+    void multiNodeConfirmsNegativesAgainstDatabase() {
+        PhoneLookupCache cache = new PhoneLookupCache(userRepository, false);
+        cache.warmUp();
+
+        when(userRepository.findByPhone(PHONE)).thenReturn(Optional.empty());
+        assertThat(cache.lookup(PHONE).isExists()).isFalse();
+
+        // Node khác vừa đăng ký phone này
+        when(userRepository.findByPhone(PHONE)).thenReturn(Optional.of(user()));
+        assertThat(cache.lookup(PHONE).isExists()).isTrue();
+
+        verify(userRepository, times(2)).findByPhone(PHONE);
+    }
+
+    @Test
+    void multiNodeCachesPositives() {
+        PhoneLookupCache cache = new PhoneLookupCache(userRepository, false);
+        when(userRepository.findByPhone(PHONE)).thenReturn(Optional.of(user()));
+
+        assertThat(cache.lookup(PHONE).isExists()).isTrue();
+        assertThat(cache.lookup(PHONE).getFullName()).isEqualTo("Nguyen Van A");
+
+        verify(userRepository, times(1)).findByPhone(PHONE);
+    }
+
+    @Test
+    void singleNodeAnswersUnknownPhoneFromFilter() {
+        when(userRepository.findAllPhones()).thenReturn(List.of("0900000001"));
+        PhoneLookupCache cache = new PhoneLookupCache(userRepository, true);
+        cache.warmUp();
+
+        assertThat(cache.lookup(PHONE).isExists()).isFalse();
+
+        verify(userRepository, times(0)).findByPhone(PHONE);
+    }
+
+    @Test
+    void singleNodeSeesLocalRegistrationImmediately() {
+        when(userRepository.findAllPhones()).thenReturn(List.of());
+        PhoneLookupCache cache = new PhoneLookupCache(userRepository, true);
+        cache.warmUp();
+
+        cache.onRegistered(PHONE);
+        when(userRepository.findByPhone(PHONE)).thenReturn(Optional.of(user()));
+
+        assertThat(cache.lookup(PHONE).isExists()).isTrue();
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setPhone(PHONE);
+        user.setFullName("Nguyen Van A");
+        user.setRole(UserRole.DRIVER);
+        return user;
+    }
+}
@@ -0,0 +1,80 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.entity.OrderStatus;
+import com.helpme.backend.entity.User;
+import com.helpme.backend.entity.UserRole;
+import com.helpme.backend.event.OrderStatusChangedEvent;
+import com.helpme.backend.exception.BadRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Số slot SSE phải trả lại khi order rời BROADCASTING
+ */
+class QuoteStreamServiceTest {
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final QuoteStreamService quoteStreamService = new QuoteStreamService(orderService);
+
+    private UUID orderId;
+    private User driver;
+
+    @BeforeEach
+    void setUp() {
+        orderId = UUID.randomUUID();
+        driver = new User();
+        driver.setId(UUID.randomUUID());
+        driver.setRole(UserRole.DRIVER);
+
+        when(orderService.getOrderStatus(eq(orderId), any())).thenReturn(OrderStatus.BROADCASTING);
+        when(orderService.getQuotes(eq(orderId), any())).thenReturn(List.of());
+    }
+
+    @Test
+    void statusChangeReleasesAllStreams() {
+        quoteStreamService.subscribe(orderId, driver);
+        quoteStreamService.subscribe(orderId, driver);
+        assertThat(quoteStreamService.openStreamCount()).isEqualTo(2);
+
+        quoteStreamService.onOrderStatusChanged(new OrderStatusChangedEvent(
+                orderId, driver.getId(), UUID.randomUUID(), OrderStatus.BROADCASTING, OrderStatus.MATCHED));
+
+        assertThat(quoteStreamService.openStreamCount()).isZero();
+    }
+
+    @Test
+    void rejectedSubscribeDoesNotTakeSlot() {
+        for (int i = 0; i < 5; i++) {
+            quoteStreamService.subscribe(orderId, driver);
+        }
+
+        assertThatThrownBy(() -> quoteStreamService.subscribe(orderId, driver))
+                .isInstanceOf(BadRequestException.class);
+        assertThat(quoteStreamService.openStreamCount()).isEqualTo(5);
+
+        quoteStreamService.onOrderStatusChanged(new OrderStatusChangedEvent(
+                orderId, driver.getId(), null, OrderStatus.BROADCASTING, OrderStatus.CANCELLED));
+
+        assertThat(quoteStreamService.openStreamCount()).isZero();
+    }
+
+    @Test
+    void orderLeavingBroadcastDuringSubscribeReleasesSlot() {
+        when(orderService.getOrderStatus(eq(orderId), any()))
+                .thenReturn(OrderStatus.BROADCASTING, OrderStatus.MATCHED);
+
+        quoteStreamService.subscribe(orderId, driver);
+
+        assertThat(quoteStreamService.openStreamCount()).isZero();
+    }
+}
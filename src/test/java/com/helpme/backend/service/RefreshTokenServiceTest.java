@@ -0,0 +1,114 @@
+package com.helpme.backend.service;
+
+import com.helpme.backend.entity.RefreshToken;
+import com.helpme.backend.exception.UnauthorizedException;
+import com.helpme.backend.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceTest {
+
+    private static final long THIRTY_DAYS_MS = 30L * 24 * 60 * 60 * 1000;
+
+    private final RefreshTokenRepository repository = mock(RefreshTokenRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final TransactionStatus independentStatus = new SimpleTransactionStatus();
+
+    // tokenHash -> row, giả lập bảng refresh_tokens
+    private final Map<String, RefreshToken> rows = new ConcurrentHashMap<>();
+
+    private RefreshTokenService service;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.save(any(RefreshToken.class))).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            token.setId(UUID.randomUUID());
+            rows.put(token.getTokenHash(), token);
+            return token;
+        });
+        when(repository.findByTokenHash(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(rows.get(invocation.<String>getArgument(0))));
+        when(repository.revokeIfActive(any(UUID.class), any(LocalDateTime.class))).thenAnswer(invocation -> {
+            UUID id = invocation.getArgument(0);
+            for (RefreshToken token : rows.values()) {
+                if (token.getId().equals(id) && token.getRevokedAt() == null) {
+                    token.setRevokedAt(invocation.getArgument(1));
+                    return 1;
+                }
+            }
+            return 0;
+        });
+        when(transactionManager.getTransaction(any())).thenReturn(independentStatus);
+
+        service = new RefreshTokenService(repository, transactionManager, THIRTY_DAYS_MS);
+    }
+
+    @Test
+    void rotateIssuesNewTokenInSameFamily() {
+        UUID userId = UUID.randomUUID();
+        String first = service.issue(userId);
+
+        RefreshTokenService.Rotation rotation = service.rotate(first);
+
+        assertThat(rotation.userId()).isEqualTo(userId);
+        assertThat(rotation.refreshToken()).isNotEqualTo(first);
+        assertThat(rows).hasSize(2);
+        assertThat(rows.values()).extracting(RefreshToken::getFamilyId).containsOnly(family());
+        verify(repository, never()).revokeFamily(any(), any());
+    }
+
+    @Test
+    void replayedTokenRevokesFamilyInCommittedIndependentTransaction() {
+        String first = service.issue(UUID.randomUUID());
+        service.rotate(first);
+
+        assertThatThrownBy(() -> service.rotate(first))
+                .isInstanceOf(UnauthorizedException.class);
+
+        InOrder order = inOrder(transactionManager, repository);
+        order.verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        order.verify(repository).revokeFamily(eq(family()), any(LocalDateTime.class));
+        order.verify(transactionManager).commit(independentStatus);
+        verify(transactionManager, never()).rollback(any());
+    }
+
+    @Test
+    void unknownTokenIsRejectedWithoutRevokingAnything() {
+        assertThatThrownBy(() -> service.rotate("not-a-token"))
+                .isInstanceOf(UnauthorizedException.class);
+
+        verify(repository, never()).revokeFamily(any(), any());
+    }
+
+    /**
+     * Mỗi test chỉ login 1 lần → mọi row cùng 1 family
+     */
+    private UUID family() {
+        return rows.values().iterator().next().getFamilyId();
+    }
+}
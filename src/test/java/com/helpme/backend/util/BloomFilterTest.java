@@ -0,0 +1,84 @@
+package com.helpme.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void everyInsertedKeyIsReported() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(phone(i));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain(phone(i))).as(phone(i)).isTrue();
+        }
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = BloomFilter.create(1_000, 0.01);
+
+        assertThat(filter.mightContain("0901234567")).isFalse();
+        assertThat(filter.mightContain("")).isFalse();
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(phone(i));
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(phone(1_000_000 + i))) {
+                falsePositives++;
+            }
+        }
+
+        // Mục tiêu 1%, chừa biên cho hash không lý tưởng
+        assertThat((double) falsePositives / probes).isLessThan(0.02);
+    }
+
+    @Test
+    void concurrentPutsAreNotLost() throws InterruptedException {
+        BloomFilter filter = BloomFilter.create(40_000, 0.01);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            int offset = t * 10_000;
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    filter.put(phone(offset + i));
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 0; i < 40_000; i++) {
+            assertThat(filter.mightContain(phone(i))).as(phone(i)).isTrue();
+        }
+    }
+
+    @Test
+    void tinyExpectedSizeStillWorks() {
+        BloomFilter filter = BloomFilter.create(0, 0.01);
+        filter.put("0901234567");
+
+        assertThat(filter.mightContain("0901234567")).isTrue();
+    }
+
+    private static String phone(int i) {
+        return String.format("09%08d", i);
+    }
+}
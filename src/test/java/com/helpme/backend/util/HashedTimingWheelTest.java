@@ -0,0 +1,127 @@
+package com.helpme.backend.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashedTimingWheelTest {
+
+    private static final long TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 8; // 1 vòng = 80ms
+
+    private HashedTimingWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new HashedTimingWheel("test-wheel", TICK_MILLIS, WHEEL_SIZE, Runnable::run);
+        wheel.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    void firesNotBeforeDeadline() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 50;
+        AtomicLong firedAt = new AtomicLong();
+        CountDownLatch fired = new CountDownLatch(1);
+
+        wheel.schedule("a", deadline, () -> {
+            firedAt.set(System.currentTimeMillis());
+            fired.countDown();
+        });
+
+        assertThat(fired.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(firedAt.get()).isGreaterThanOrEqualTo(deadline);
+        assertThat(wheel.contains("a")).isFalse();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void deadlineSeveralRoundsAwayWaitsForItsRound() throws InterruptedException {
+        // 3+ vòng wheel: phải đếm remainingRounds, không fire ở lần đầu quét bucket
+        long deadline = System.currentTimeMillis() + 4 * TICK_MILLIS * WHEEL_SIZE + 15;
+        AtomicLong firedAt = new AtomicLong();
+        CountDownLatch fired = new CountDownLatch(1);
+
+        wheel.schedule("far", deadline, () -> {
+            firedAt.set(System.currentTimeMillis());
+            fired.countDown();
+        });
+
+        assertThat(fired.await(3, TimeUnit.SECONDS)).isTrue();
+        assertThat(firedAt.get()).isGreaterThanOrEqualTo(deadline);
+        assertThat(firedAt.get() - deadline).isLessThan(TICK_MILLIS * WHEEL_SIZE);
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextTick() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+
+        wheel.schedule("late", System.currentTimeMillis() - 60_000, fired::countDown);
+
+        assertThat(fired.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void cancelledTimeoutNeverFires() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch marker = new CountDownLatch(1);
+
+        wheel.schedule("cancelled", System.currentTimeMillis() + 30, runs::incrementAndGet);
+        wheel.cancel("cancelled");
+        wheel.schedule("marker", System.currentTimeMillis() + 60, marker::countDown);
+
+        assertThat(marker.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(runs.get()).isZero();
+        assertThat(wheel.contains("cancelled")).isFalse();
+    }
+
+    @Test
+    void rescheduleSameKeyReplacesPreviousTimeout() throws InterruptedException {
+        List<String> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        wheel.schedule("order", System.currentTimeMillis() + 20, () -> fired.add("old"));
+        wheel.schedule("order", System.currentTimeMillis() + 60, () -> {
+            fired.add("new");
+            done.countDown();
+        });
+        assertThat(wheel.size()).isEqualTo(1);
+
+        assertThat(done.await(2, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(3 * TICK_MILLIS);
+        assertThat(fired).containsExactly("new");
+    }
+
+    @Test
+    void manyTimeoutsAllFireExactlyOnce() throws InterruptedException {
+        int count = 1_000;
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(count);
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            wheel.schedule("t" + i, now + (i % 200), () -> {
+                runs.incrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(3, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(3 * TICK_MILLIS);
+        assertThat(runs.get()).isEqualTo(count);
+        assertThat(wheel.size()).isZero();
+    }
+}
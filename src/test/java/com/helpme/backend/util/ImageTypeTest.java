@@ -0,0 +1,94 @@
+package com.helpme.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Nhận diện ảnh theo magic bytes, không theo tên file
+ */
+class ImageTypeTest {
+
+    @Test
+    void detectsJpeg() {
+        assertThat(ImageType.detect(header(0xFF, 0xD8, 0xFF, 0xE0, 0x00, 0x10, 'J', 'F', 'I', 'F')))
+                .isEqualTo(ImageType.JPEG);
+    }
+
+    @Test
+    void detectsPng() {
+        assertThat(ImageType.detect(header(0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13)))
+                .isEqualTo(ImageType.PNG);
+    }
+
+    @Test
+    void detectsGif87AndGif89() {
+        assertThat(ImageType.detect(ascii("GIF87a\u0001\u0000"))).isEqualTo(ImageType.GIF);
+        assertThat(ImageType.detect(ascii("GIF89a\u0001\u0000"))).isEqualTo(ImageType.GIF);
+    }
+
+    @Test
+    void detectsWebp() {
+        assertThat(ImageType.detect(ascii("RIFF$\u0000\u0000\u0000WEBPVP8 "))).isEqualTo(ImageType.WEBP);
+    }
+
+    @Test
+    void detectsHeicBrands() {
+        for (String brand : new String[] { "heic", "heix", "mif1", "msf1" }) {
+            assertThat(ImageType.detect(ascii("\u0000\u0000\u0000\u0018ftyp" + brand + "\u0000\u0000\u0000\u0000")))
+                    .as(brand)
+                    .isEqualTo(ImageType.HEIC);
+        }
+    }
+
+    @Test
+    void riffWithoutWebpIsRejected() {
+        assertThat(ImageType.detect(ascii("RIFF$\u0000\u0000\u0000WAVEfmt "))).isNull();
+    }
+
+    @Test
+    void nonHeicFtypIsRejected() {
+        // MP4 cũng bắt đầu bằng ftyp nhưng brand khác
+        assertThat(ImageType.detect(ascii("\u0000\u0000\u0000\u0018ftypisom\u0000\u0000\u0002\u0000"))).isNull();
+    }
+
+    @Test
+    void renamedTextFileIsRejected() {
+        // "photo.jpg" thực chất là file text
+        assertThat(ImageType.detect(ascii("hello, this is not an image"))).isNull();
+    }
+
+    @Test
+    void truncatedHeaderIsRejected() {
+        assertThat(ImageType.detect(header(0xFF, 0xD8))).isNull();
+        assertThat(ImageType.detect(ByteBuffer.allocate(0))).isNull();
+    }
+
+    @Test
+    void detectsFromBufferPosition() {
+        ByteBuffer buffer = ByteBuffer.allocate(12);
+        buffer.put(new byte[] { 1, 2, 3, 4 });
+        buffer.put(new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE1 });
+        buffer.flip();
+        buffer.position(4);
+
+        assertThat(ImageType.detect(buffer)).isEqualTo(ImageType.JPEG);
+    }
+
+    // ==================== PRIVATE METHODS ====================
+
+    private static ByteBuffer header(int... bytes) {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+        for (int b : bytes) {
+            buffer.put((byte) b);
+        }
+        return buffer.flip();
+    }
+
+    private static ByteBuffer ascii(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}